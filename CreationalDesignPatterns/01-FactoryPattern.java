@@ -1,7 +1,33 @@
 /**
  * Factory Design Pattern Example - Optimized Version
+ *
+ * The subsystems built on the factory live in class-named source files next to this one.
+ * Compile and run them together:
+ *   javac --add-modules jdk.incubator.vector -d out 01-FactoryPattern.java [A-Z]*.java
+ *   java -cp out FactoryPatternExample
+ * Run with --add-modules jdk.incubator.vector as well to use VectorGeometryKernel.
  */
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
 // ===== BAD IMPLEMENTATION (without Factory Pattern) =====
 
 // Product classes with duplicate functionality
@@ -37,35 +63,480 @@ class BadExample {
 
 // ===== GOOD IMPLEMENTATION (with Factory Pattern) =====
 
-// Common interface
-interface Shape {
-    void draw();
-}
-
 // Concrete implementations
 class CircleGood implements Shape {
-    @Override public void draw() { System.out.println("Drawing a Circle"); }
+    @Override public void draw(RenderSink sink) { sink.write("Drawing a Circle"); }
 }
 
 class RectangleGood implements Shape {
-    @Override public void draw() { System.out.println("Drawing a Rectangle"); }
+    @Override public void draw(RenderSink sink) { sink.write("Drawing a Rectangle"); }
 }
 
 class TriangleGood implements Shape {
-    @Override public void draw() { System.out.println("Drawing a Triangle"); }
+    @Override public void draw(RenderSink sink) { sink.write("Drawing a Triangle"); }
+}
+
+// Shapes with a position and size. Every shape fills the box [x, x + width] x [y, y + height]:
+// a circle is inscribed (width is its diameter), a triangle has its base on y and its apex at
+// the top centre.
+interface GeometricShape extends Shape {
+    ShapeType kind();
+    float x();
+    float y();
+    float width();
+    float height();
+    double area();
+    double perimeter();
+
+    // Exact outline test, not just the box
+    default boolean contains(float px, float py) {
+        float dx = px - x(), dy = py - y();
+        if (dx < 0 || dy < 0 || dx > width() || dy > height()) return false;
+        switch (kind()) {
+            case CIRCLE: {
+                float r = width() / 2, cx = dx - r, cy = dy - r;
+                return cx * cx + cy * cy <= r * r;
+            }
+            case RECTANGLE: return true;
+            // The triangle narrows linearly from its full base at y to a point at the top
+            default: return Math.abs(dx - width() / 2) <= width() / 2 * (1 - dy / height());
+        }
+    }
+
+    static double area(ShapeType kind, double width, double height) {
+        switch (kind) {
+            case CIRCLE: return Math.PI / 4 * width * width;
+            case RECTANGLE: return width * height;
+            default: return width * height / 2;
+        }
+    }
+
+    static double perimeter(ShapeType kind, double width, double height) {
+        switch (kind) {
+            case CIRCLE: return Math.PI * width;
+            case RECTANGLE: return 2 * (width + height);
+            default: return width + Math.sqrt(width * width + 4 * height * height);
+        }
+    }
+}
+
+abstract class AbstractGeometricShape implements GeometricShape {
+    private final float x, y, width, height;
+
+    AbstractGeometricShape(float x, float y, float width, float height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override public float x() { return x; }
+    @Override public float y() { return y; }
+    @Override public float width() { return width; }
+    @Override public float height() { return height; }
+}
+
+class GeometricCircle extends AbstractGeometricShape {
+    GeometricCircle(float x, float y, float diameter) { super(x, y, diameter, diameter); }
+
+    @Override public ShapeType kind() { return ShapeType.CIRCLE; }
+    @Override public double area() { return Math.PI / 4 * width() * width(); }
+    @Override public double perimeter() { return Math.PI * width(); }
+    @Override public void draw(RenderSink sink) { sink.write("Drawing a Circle"); }
+}
+
+class GeometricRectangle extends AbstractGeometricShape {
+    GeometricRectangle(float x, float y, float width, float height) { super(x, y, width, height); }
+
+    @Override public ShapeType kind() { return ShapeType.RECTANGLE; }
+    @Override public double area() { return (double) width() * height(); }
+    @Override public double perimeter() { return 2 * ((double) width() + height()); }
+    @Override public void draw(RenderSink sink) { sink.write("Drawing a Rectangle"); }
+}
+
+class GeometricTriangle extends AbstractGeometricShape {
+    GeometricTriangle(float x, float y, float width, float height) { super(x, y, width, height); }
+
+    @Override public ShapeType kind() { return ShapeType.TRIANGLE; }
+    @Override public double area() { return (double) width() * height() / 2; }
+    @Override public double perimeter() { return GeometricShape.perimeter(ShapeType.TRIANGLE, width(), height()); }
+    @Override public void draw(RenderSink sink) { sink.write("Drawing a Triangle"); }
+}
+
+// Shape kinds known to the factory - callers that already know the kind skip string parsing
+enum ShapeType {
+    CIRCLE, RECTANGLE, TRIANGLE;
+
+    // Small open-addressing table built once; size is a power of two larger than the shape count
+    private static final int TABLE_SIZE = 16;
+    private static final ShapeType[] TABLE = new ShapeType[TABLE_SIZE];
+
+    static {
+        for (ShapeType type : values()) {
+            int i = foldedHash(type.name().length(), type.name().charAt(0)) & (TABLE_SIZE - 1);
+            while (TABLE[i] != null) i = (i + 1) & (TABLE_SIZE - 1);
+            TABLE[i] = type;
+        }
+    }
+
+    // Hashes the length and the first character with its ASCII case bit cleared, so "circle" and
+    // "CIRCLE" share a slot; constant time, and matchesName settles any collision
+    private static int foldedHash(int length, int first) {
+        int h = 31 * length + (first & 0xFFDF);
+        return h ^ (h >>> 4);
+    }
+
+    // Constant names are upper-case ASCII, so a char matches if it equals the name char
+    // or equals it once its case bit is cleared
+    private boolean matchesName(String s) {
+        String name = name();
+        if (s.length() != name.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != name.charAt(i) && (c & 0xFFDF) != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Same check over ASCII bytes in [from, to)
+    private boolean matchesName(ByteBuffer bytes, int from, int to) {
+        String name = name();
+        if (to - from != name.length()) return false;
+        for (int i = 0; i < name.length(); i++) {
+            int b = bytes.get(from + i);
+            if (b != name.charAt(i) && (b & 0xDF) != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Case-insensitive lookup that never allocates; returns null for unknown names
+    static ShapeType parse(String name) {
+        if (name.isEmpty()) return null;
+        // No toUpperCase() copy: probe with the folded hash and compare the raw characters
+        int hash = foldedHash(name.length(), name.charAt(0));
+        for (int i = hash & (TABLE_SIZE - 1); TABLE[i] != null; i = (i + 1) & (TABLE_SIZE - 1)) {
+            if (TABLE[i].matchesName(name)) return TABLE[i];
+        }
+        return null;
+    }
+
+    // Byte-level variant for raw file contents: parses [from, to) without creating a String,
+    // ignoring surrounding spaces, tabs and a trailing '\r'
+    static ShapeType parse(ByteBuffer bytes, int from, int to) {
+        while (from < to && isBlank(bytes.get(from))) from++;
+        while (to > from && isBlank(bytes.get(to - 1))) to--;
+        if (from == to) return null;
+        int hash = foldedHash(to - from, bytes.get(from));
+        for (int i = hash & (TABLE_SIZE - 1); TABLE[i] != null; i = (i + 1) & (TABLE_SIZE - 1)) {
+            if (TABLE[i].matchesName(bytes, from, to)) return TABLE[i];
+        }
+        return null;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
 }
 
 // Factory class centralizes creation logic
 class ShapeFactory {
+    // One supplier per ShapeType, indexed by ordinal - no hashing or string compares on this path
+    @SuppressWarnings("unchecked")
+    private static final Supplier<Shape>[] SUPPLIERS = (Supplier<Shape>[]) new Supplier<?>[ShapeType.values().length];
+
+    static {
+        SUPPLIERS[ShapeType.CIRCLE.ordinal()] = CircleGood::new;
+        SUPPLIERS[ShapeType.RECTANGLE.ordinal()] = RectangleGood::new;
+        SUPPLIERS[ShapeType.TRIANGLE.ordinal()] = TriangleGood::new;
+    }
+
+    // Batches at least this large are split across the common ForkJoinPool
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+    // Flyweight mode: one canonical instance per type, only safe while shapes hold no state
+    private final Shape[] sharedInstances;
+    private final int parallelThreshold;
+    private final ShapeFactoryMetrics metrics; // null when instrumentation is off
+    private final ShapePluginLoader plugins; // null when only the built-in types are known
+
+    // Default: a new shape per call, so shapes can gain state later
+    public ShapeFactory() {
+        this(false);
+    }
+
+    public ShapeFactory(boolean shareInstances) {
+        this(shareInstances, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public ShapeFactory(boolean shareInstances, int parallelThreshold) {
+        this(shareInstances, parallelThreshold, null);
+    }
+
+    public ShapeFactory(boolean shareInstances, int parallelThreshold, ShapeFactoryMetrics metrics) {
+        this(shareInstances, parallelThreshold, metrics, null);
+    }
+
+    // Names that no ShapeType claims are looked up in the plug-ins; plug-in shapes are never shared
+    public ShapeFactory(boolean shareInstances, int parallelThreshold, ShapeFactoryMetrics metrics, ShapePluginLoader plugins) {
+        this.parallelThreshold = parallelThreshold;
+        this.metrics = metrics;
+        this.plugins = plugins;
+        if (shareInstances) {
+            sharedInstances = new Shape[SUPPLIERS.length];
+            for (int i = 0; i < SUPPLIERS.length; i++) sharedInstances[i] = SUPPLIERS[i].get();
+        } else {
+            sharedInstances = null;
+        }
+    }
+
+    public Shape createShape(ShapeType type) {
+        // Without a recording that enables it, the event does nothing and the JIT drops it
+        ShapeCreationEvent event = new ShapeCreationEvent();
+        event.begin();
+        Shape shape = metrics == null ? newShape(type) : newShapeMeasured(type);
+        if (event.shouldCommit()) {
+            event.shapeType = type == null ? null : type.name();
+            event.productClass = shape == null ? null : shape.getClass();
+            event.commit();
+        }
+        return shape;
+    }
+
+    private Shape newShapeMeasured(ShapeType type) {
+        metrics.count(type);
+        if (!metrics.sampleLatency()) return newShape(type);
+        long start = System.nanoTime();
+        Shape shape = newShape(type);
+        metrics.recordLatency(System.nanoTime() - start);
+        return shape;
+    }
+
+    private Shape newShape(ShapeType type) {
+        if (type == null) return null;
+        if (sharedInstances != null) return sharedInstances[type.ordinal()];
+        return SUPPLIERS[type.ordinal()].get();
+    }
+
+    // Shapes with geometry are always new instances; see GeometricShape for the box convention
+    public GeometricShape createShape(ShapeType type, float x, float y, float width, float height) {
+        ShapeCreationEvent event = new ShapeCreationEvent();
+        event.begin();
+        GeometricShape shape = metrics == null
+                ? newGeometricShape(type, x, y, width, height)
+                : newGeometricShapeMeasured(type, x, y, width, height);
+        if (event.shouldCommit()) {
+            event.shapeType = type.name();
+            event.productClass = shape.getClass();
+            event.commit();
+        }
+        return shape;
+    }
+
+    // Counted and sampled the same way as newShapeMeasured
+    private GeometricShape newGeometricShapeMeasured(ShapeType type, float x, float y, float width, float height) {
+        metrics.count(type);
+        if (!metrics.sampleLatency()) return newGeometricShape(type, x, y, width, height);
+        long start = System.nanoTime();
+        GeometricShape shape = newGeometricShape(type, x, y, width, height);
+        metrics.recordLatency(System.nanoTime() - start);
+        return shape;
+    }
+
+    private static GeometricShape newGeometricShape(ShapeType type, float x, float y, float width, float height) {
+        switch (type) {
+            case CIRCLE: return new GeometricCircle(x, y, width);
+            case RECTANGLE: return new GeometricRectangle(x, y, width, height);
+            default: return new GeometricTriangle(x, y, width, height);
+        }
+    }
+
+    // String adapter: parse once, then take the enum path (null and unknown names become misses)
+    public Shape createShape(String type) {
+        ShapeType parsed = type == null ? null : ShapeType.parse(type);
+        return parsed == null && plugins != null ? createPluginShape(type) : createShape(parsed);
+    }
+
+    // A name no ShapeType claims: a plug-in shape, else a miss as before
+    private Shape createPluginShape(String type) {
+        Shape shape = type == null ? null : plugins.createShape(type);
+        return shape != null ? shape : createShape((ShapeType) null);
+    }
+
+    // Bulk creation into a pre-sized array; unknown or null entries stay null, as with createShape
+    public Shape[] createShapes(ShapeType[] types) {
+        return fill(types.length, i -> createShape(types[i]));
+    }
+
+    // String adapter: parse each name once, then fill through the enum path
+    public Shape[] createShapes(String[] types) {
+        ShapeType[] parsed = new ShapeType[types.length];
+        for (int i = 0; i < types.length; i++) parsed[i] = types[i] == null ? null : ShapeType.parse(types[i]);
+        if (plugins == null) return createShapes(parsed);
+        return fill(types.length, i -> parsed[i] == null ? createPluginShape(types[i]) : createShape(parsed[i]));
+    }
+
+    private Shape[] fill(int count, IntFunction<Shape> create) {
+        Shape[] shapes = new Shape[count];
+        if (count >= parallelThreshold) Arrays.parallelSetAll(shapes, create);
+        else for (int i = 0; i < count; i++) shapes[i] = create.apply(i);
+        return shapes;
+    }
+
+    // Lazy variant; a parallel input stream is processed in parallel
+    public Stream<Shape> createShapes(Stream<String> types) {
+        return types.map(this::createShape);
+    }
+}
+
+// Flight Recorder event for createShape (see creation-events.jfc)
+@Name("designpatterns.ShapeCreation")
+@Label("Shape Creation")
+@Category({"Design Patterns", "Factory"})
+@Enabled(false)
+@Threshold("1 ms")
+class ShapeCreationEvent extends Event {
+    @Label("Shape Type")
+    String shapeType;
+
+    @Label("Product Class")
+    Class<?> productClass;
+}
+
+// Registry of built-in and plug-in shapes - new shapes need no edit to a switch
+class ShapeRegistry {
+    // Resolves its constructor into a Supplier once, on first use
+    private static final class Entry {
+        final ShapeProvider provider;
+        volatile Supplier<Shape> supplier;
+
+        Entry(ShapeProvider provider) { this.provider = provider; }
+
+        Shape create() {
+            Supplier<Shape> s = supplier;
+            if (s == null) supplier = s = constructorSupplier(provider.shapeClass());
+            return s.get();
+        }
+    }
+
+    private static final class BuiltInProvider implements ShapeProvider {
+        private final ShapeType type;
+
+        BuiltInProvider(ShapeType type) { this.type = type; }
+
+        @Override public String shapeName() { return type.name(); }
+
+        @Override public Class<? extends Shape> shapeClass() {
+            switch (type) {
+                case CIRCLE: return CircleGood.class;
+                case RECTANGLE: return RectangleGood.class;
+                default: return TriangleGood.class;
+            }
+        }
+    }
+
+    // Open-addressing table keyed by the folded name, built once and never written again, so
+    // lookups need no locking. Like ShapeType, it never upper-cases the query
+    private final String[] names;
+    private final Entry[] slots;
+
+    public ShapeRegistry() {
+        this(Thread.currentThread().getContextClassLoader());
+    }
+
+    public ShapeRegistry(ClassLoader loader) {
+        Map<String, Entry> map = new HashMap<>();
+        for (ShapeType type : ShapeType.values()) map.put(type.name(), new Entry(new BuiltInProvider(type)));
+        // Plug-ins may add new names or replace built-ins. Every provider is loaded and instantiated
+        // here, since its name is only known from shapeName(); only the shape classes are deferred
+        for (ShapeProvider provider : ServiceLoader.load(ShapeProvider.class, loader)) {
+            map.put(foldName(provider.shapeName()), new Entry(provider));
+        }
+        int size = Integer.highestOneBit(map.size() * 2 - 1) << 1;
+        names = new String[size];
+        slots = new Entry[size];
+        map.forEach((name, entry) -> {
+            int i = foldedHash(name) & (size - 1);
+            while (names[i] != null) i = (i + 1) & (size - 1);
+            names[i] = name;
+            slots[i] = entry;
+        });
+    }
+
     public Shape createShape(String type) {
         if (type == null) return null;
-        
-        switch (type.toUpperCase()) {
-            case "CIRCLE": return new CircleGood();
-            case "RECTANGLE": return new RectangleGood();
-            case "TRIANGLE": return new TriangleGood();
-            default: return null;
+        // Probe with the folded hash and compare the raw characters, so no spelling allocates
+        int mask = names.length - 1;
+        for (int i = foldedHash(type) & mask; names[i] != null; i = (i + 1) & mask) {
+            if (matchesFolded(names[i], type)) return slots[i].create();
+        }
+        return null;
+    }
+
+    // Shape names match ASCII case-insensitively, as in ShapeType.parse: only a-z fold, so the
+    // default locale (e.g. the Turkish dotted I) never changes which shape a name means
+    static String foldName(String name) {
+        char[] chars = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = fold(name.charAt(i));
+            if (c != name.charAt(i)) {
+                if (chars == null) chars = name.toCharArray();
+                chars[i] = c;
+            }
+        }
+        return chars == null ? name : new String(chars);
+    }
+
+    private static char fold(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+
+    // Same constant-time hash as ShapeType: the length and the first character with its ASCII case
+    // bit cleared. matchesFolded settles collisions
+    private static int foldedHash(String name) {
+        int h = 31 * name.length() + (name.isEmpty() ? 0 : name.charAt(0) & 0xFFDF);
+        return h ^ (h >>> 4);
+    }
+
+    // folded is already folded, so only the query's characters need folding
+    private static boolean matchesFolded(String folded, String name) {
+        if (folded.length() != name.length()) return false;
+        if (folded.equals(name)) return true; // the canonical spelling, compared as a block
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != folded.charAt(i) && fold(c) != folded.charAt(i)) return false;
         }
+        return true;
+    }
+
+    // Spins a Supplier straight onto the no-arg constructor, so calls through it inline like `new`
+    @SuppressWarnings("unchecked")
+    static Supplier<Shape> constructorSupplier(Class<? extends Shape> shapeClass) {
+        try {
+            // A lookup inside the shape's own class keeps plug-in classes visible to the generated lambda
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(shapeClass, MethodHandles.lookup());
+            MethodHandle constructor = lookup.findConstructor(shapeClass, MethodType.methodType(void.class));
+            // A class from another loader sits in another unnamed module, where privateLookupIn grants
+            // only partial access and the metafactory rejects the caller; call the handle instead
+            if (!lookup.hasFullPrivilegeAccess()) return invokingSupplier(constructor.asType(MethodType.methodType(Shape.class)));
+            CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                    MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                    constructor, MethodType.methodType(shapeClass));
+            return (Supplier<Shape>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot bind no-arg constructor of " + shapeClass.getName(), e);
+        }
+    }
+
+    private static Supplier<Shape> invokingSupplier(MethodHandle constructor) {
+        return () -> {
+            try {
+                return (Shape) constructor.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e); // a constructor that sneaks out a checked exception
+            }
+        };
     }
 }
 
@@ -79,11 +550,46 @@ class GoodExample {
         circle.draw();
         
         factory.createShape("RECTANGLE").draw();
+        
+        // Callers that already know the kind can skip the string entirely
+        factory.createShape(ShapeType.TRIANGLE).draw();
+        
+        // Stateless shapes can be shared instead of allocated per call
+        ShapeFactory sharedFactory = new ShapeFactory(true);
+        System.out.println("Same circle instance? " + 
+                (sharedFactory.createShape("circle") == sharedFactory.createShape(ShapeType.CIRCLE)));
+        
+        // The registry also serves shapes contributed by plug-ins on the class path
+        new ShapeRegistry().createShape("Rectangle").draw();
+        
+        // Whole batches in one call; large scenes can draw into a batched sink and flush once
+        BatchedRenderSink sink = BatchedRenderSink.stdout();
+        for (Shape shape : factory.createShapes(new String[] {"circle", "triangle"})) shape.draw(sink);
+        sink.flush();
+        
+        // Optional metrics: per-type counts, misses and creation latency
+        ShapeFactoryMetrics metrics = new ShapeFactoryMetrics();
+        ShapeFactory measured = new ShapeFactory(false, ShapeFactory.DEFAULT_PARALLEL_THRESHOLD, metrics);
+        measured.createShape("circle");
+        measured.createShape("hexagon");
+        System.out.println("Metrics: " + metrics.snapshot());
+        
+        // Shapes with geometry can live in primitive arrays and still be drawn as Shapes
+        ShapeBatch batch = new ShapeBatch();
+        batch.add(ShapeType.RECTANGLE, 0, 0, 4, 2);
+        batch.add(ShapeType.CIRCLE, 5, 5, 3, 3);
+        batch.forEach(Shape::draw);
+        System.out.println("Total area: " + ShapeGeometryEngine.of(batch).totalArea());
+        
+        // Broad-phase collision: which boxes overlap this tick
+        SweepAndPrune broadPhase = new SweepAndPrune();
+        batch.add(ShapeType.TRIANGLE, 1, 1, 5, 5);
+        System.out.println("Overlapping pairs: " + broadPhase.update(batch));
     }
 }
 
 // Demo class
-public class FactoryPatternExample {
+class FactoryPatternExample {
     public static void main(String[] args) {
         System.out.println("=== Bad Implementation ===");
         BadExample.main(args);
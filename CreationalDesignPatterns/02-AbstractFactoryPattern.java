@@ -5,6 +5,37 @@
  * without mixing styles.
  */
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
 // ===== WITHOUT ABSTRACT FACTORY (BAD WAY) =====
 
 // Furniture classes
@@ -75,21 +106,205 @@ class VictorianTableGood implements Table {
     @Override public void putOn() { System.out.println("Putting items on Victorian Table"); }
 }
 
+// A batch of matched sets: chair(i) and table(i) always come from the same factory
+final class FurnitureSet {
+    private final Chair[] chairs;
+    private final Table[] tables;
+
+    FurnitureSet(int size) {
+        this.chairs = new Chair[size];
+        this.tables = new Table[size];
+    }
+
+    public int size() { return chairs.length; }
+    public Chair chair(int i) { return chairs[i]; }
+    public Table table(int i) { return tables[i]; }
+
+    // For factories filling the arrays in place
+    Chair[] chairs() { return chairs; }
+    Table[] tables() { return tables; }
+}
+
 // Abstract Factory
 interface FurnitureFactory {
     Chair createChair();
     Table createTable();
+
+    // n matched sets in one pass over preallocated arrays
+    default FurnitureSet createSets(int n) {
+        FurnitureSet sets = new FurnitureSet(n);
+        Chair[] chairs = sets.chairs();
+        Table[] tables = sets.tables();
+        for (int i = 0; i < n; i++) {
+            chairs[i] = createChair();
+            tables[i] = createTable();
+        }
+        return sets;
+    }
+}
+
+// Flight Recorder event for furniture creation (see creation-events.jfc)
+@Name("designpatterns.FurnitureCreation")
+@Label("Furniture Creation")
+@Category({"Design Patterns", "Abstract Factory"})
+@Enabled(false)
+@Threshold("1 ms")
+class FurnitureCreationEvent extends Event {
+    @Label("Factory Class")
+    Class<?> factoryClass;
+
+    @Label("Product")
+    String product;
+
+    @Label("Product Class")
+    Class<?> productClass;
+
+    // Without an enabled recording the event object is never used, and the JIT removes it
+    static <T> T record(FurnitureFactory factory, String product, Supplier<T> create) {
+        FurnitureCreationEvent event = new FurnitureCreationEvent();
+        event.begin();
+        T created = create.get();
+        if (event.shouldCommit()) {
+            event.factoryClass = factory.getClass();
+            event.product = product;
+            event.productClass = created.getClass();
+            event.commit();
+        }
+        return created;
+    }
 }
 
 // Concrete Factories
 class ModernFurnitureFactory implements FurnitureFactory {
-    @Override public Chair createChair() { return new ModernChairGood(); }
-    @Override public Table createTable() { return new ModernTableGood(); }
+    @Override public Chair createChair() { return FurnitureCreationEvent.record(this, "chair", () -> new ModernChairGood()); }
+    @Override public Table createTable() { return FurnitureCreationEvent.record(this, "table", () -> new ModernTableGood()); }
 }
 
 class VictorianFurnitureFactory implements FurnitureFactory {
-    @Override public Chair createChair() { return new VictorianChairGood(); }
-    @Override public Table createTable() { return new VictorianTableGood(); }
+    @Override public Chair createChair() { return FurnitureCreationEvent.record(this, "chair", () -> new VictorianChairGood()); }
+    @Override public Table createTable() { return FurnitureCreationEvent.record(this, "table", () -> new VictorianTableGood()); }
+}
+
+// For factories whose products need slow I/O (materials, textures) to build: the chair and the
+// table are created concurrently, so a matched set takes max(chair, table) rather than the sum
+interface AsyncFurnitureFactory {
+    CompletableFuture<Chair> createChairAsync();
+    CompletableFuture<Table> createTableAsync();
+
+    // Completes when both halves are ready, or exceptionally as soon as either fails
+    default CompletableFuture<FurnitureSet> createSetAsync() {
+        return matched(createChairAsync(), createTableAsync());
+    }
+
+    static CompletableFuture<FurnitureSet> matched(CompletableFuture<? extends Chair> chair,
+                                                   CompletableFuture<? extends Table> table) {
+        CompletableFuture<FurnitureSet> set = chair.thenCombine(table, (c, t) -> {
+            FurnitureSet pair = new FurnitureSet(1);
+            pair.chairs()[0] = c;
+            pair.tables()[0] = t;
+            return pair;
+        });
+        // thenCombine alone would wait for the other half before reporting a failure
+        BiConsumer<Object, Throwable> failFast = (product, failure) -> {
+            if (failure != null) set.completeExceptionally(failure);
+        };
+        chair.whenComplete(failFast);
+        table.whenComplete(failFast);
+        return set;
+    }
+
+    // Runs a blocking factory's methods on the executor. On JDK 21+ pass
+    // Executors.newVirtualThreadPerTaskExecutor() so each creation gets its own virtual thread
+    static AsyncFurnitureFactory of(FurnitureFactory factory, Executor executor) {
+        return new AsyncFurnitureFactory() {
+            @Override public CompletableFuture<Chair> createChairAsync() {
+                return CompletableFuture.supplyAsync(factory::createChair, executor);
+            }
+
+            @Override public CompletableFuture<Table> createTableAsync() {
+                return CompletableFuture.supplyAsync(factory::createTable, executor);
+            }
+        };
+    }
+}
+
+// Hands out lightweight proxies and builds the real product on its first sitOn/putOn, for callers
+// that create much more furniture than they end up using
+class LazyFurnitureFactory implements FurnitureFactory {
+    private final FurnitureFactory target;
+    private final LongAdder proxies = new LongAdder();
+    private final LongAdder materialized = new LongAdder();
+
+    public LazyFurnitureFactory(FurnitureFactory target) {
+        this.target = target;
+    }
+
+    // Holder for the real product, published lock-free with compare-and-exchange. Threads racing on
+    // the first call may each build one, but only the first stored is ever used or counted
+    private abstract static class Lazy<T> {
+        private static final VarHandle REAL;
+        static {
+            try {
+                REAL = MethodHandles.lookup().findVarHandle(Lazy.class, "real", Object.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final LazyFurnitureFactory owner;
+        @SuppressWarnings("unused") // accessed through REAL
+        private Object real;
+
+        Lazy(LazyFurnitureFactory owner) {
+            this.owner = owner;
+        }
+
+        abstract T build();
+
+        @SuppressWarnings("unchecked")
+        final T real() {
+            Object current = REAL.getAcquire(this);
+            if (current != null) return (T) current;
+            T built = build();
+            Object winner = REAL.compareAndExchange(this, null, built);
+            if (winner != null) return (T) winner;
+            owner.materialized.increment();
+            return built;
+        }
+    }
+
+    private static final class LazyChair extends Lazy<Chair> implements Chair {
+        LazyChair(LazyFurnitureFactory owner) { super(owner); }
+        @Override Chair build() { return owner.target.createChair(); }
+        @Override public void sitOn() { real().sitOn(); }
+    }
+
+    private static final class LazyTable extends Lazy<Table> implements Table {
+        LazyTable(LazyFurnitureFactory owner) { super(owner); }
+        @Override Table build() { return owner.target.createTable(); }
+        @Override public void putOn() { real().putOn(); }
+    }
+
+    @Override public Chair createChair() {
+        proxies.increment();
+        return new LazyChair(this);
+    }
+
+    @Override public Table createTable() {
+        proxies.increment();
+        return new LazyTable(this);
+    }
+
+    public long proxiesCreated() { return proxies.sum(); }
+    public long materialized() { return materialized.sum(); }
+    // Products whose construction was skipped entirely; approximate while other threads are creating
+    public long neverMaterialized() { return proxies.sum() - materialized.sum(); }
+
+    @Override
+    public String toString() {
+        long created = proxies.sum(), used = materialized.sum();
+        return "proxies=" + created + ", materialized=" + used + ", neverMaterialized=" + (created - used);
+    }
 }
 
 // Client uses abstract types only - Pure Abstract Factory pattern implementation
@@ -107,6 +322,221 @@ class GoodFurnitureClient {
         chair.sitOn();
         table.putOn();
     }
+
+    // Style chosen at runtime, without the equals() chain of BadFurnitureClient
+    public static void createFurniture(FurnitureFactoryRegistry registry, String style) {
+        FurnitureFactory factory = registry.get(style);
+        if (factory == null) throw new IllegalArgumentException("Unknown furniture style: " + style);
+        createFurniture(factory);
+    }
+}
+
+// Style name -> factory, for clients that pick the style per request from a string. Reads are one
+// volatile load of an immutable map, so they never block; a writer copies the map, changes the copy
+// and swaps it in with compare-and-set, retrying if another writer got there first.
+class FurnitureFactoryRegistry {
+    private final AtomicReference<Map<String, FurnitureFactory>> factories;
+
+    public FurnitureFactoryRegistry() {
+        factories = new AtomicReference<>(Map.of(
+                "modern", new ModernFurnitureFactory(),
+                "victorian", new VictorianFurnitureFactory()));
+    }
+
+    // Case-insensitive; lower-case keys hit directly, other spellings pay for one lower-cased copy
+    public FurnitureFactory get(String style) {
+        if (style == null) return null;
+        Map<String, FurnitureFactory> current = factories.get();
+        FurnitureFactory factory = current.get(style);
+        return factory != null ? factory : current.get(style.toLowerCase(Locale.ROOT));
+    }
+
+    // Adds or replaces a style at runtime; returns the factory it replaced, if any
+    public FurnitureFactory register(String style, FurnitureFactory factory) {
+        String key = style.toLowerCase(Locale.ROOT);
+        Objects.requireNonNull(factory, "factory");
+        while (true) {
+            Map<String, FurnitureFactory> current = factories.get();
+            Map<String, FurnitureFactory> copy = new HashMap<>(current);
+            FurnitureFactory previous = copy.put(key, factory);
+            if (factories.compareAndSet(current, Map.copyOf(copy))) return previous;
+        }
+    }
+
+    public Set<String> styles() {
+        return factories.get().keySet();
+    }
+}
+
+// Plain nanoTime harness; run its main() directly
+class FurnitureFactoryBenchmark {
+    private static final String[] STYLES = {"modern", "victorian", "Modern", "VICTORIAN"};
+    private static final int READERS = 64;
+    private static final long RUN_MILLIS = 2_000;
+    static volatile Object blackhole; // keeps the JIT from discarding results
+
+    public static void main(String[] args) throws Exception {
+        measureRegistryContention();
+        measureSetCreation();
+        measureAsyncSets();
+        measureLazyProducts();
+    }
+
+    // Products with real construction work, of which one in ten is ever used
+    static void measureLazyProducts() {
+        FurnitureFactory costly = new FurnitureFactory() {
+            @Override public Chair createChair() {
+                double[] material = new double[256];
+                for (int i = 0; i < material.length; i++) material[i] = Math.sqrt(i);
+                return () -> blackhole = material;
+            }
+
+            @Override public Table createTable() {
+                double[] material = new double[256];
+                for (int i = 0; i < material.length; i++) material[i] = Math.cbrt(i);
+                return () -> blackhole = material;
+            }
+        };
+        int n = 100_000;
+        for (int round = 1; round <= 3; round++) {
+            System.out.println("Round " + round);
+            LazyFurnitureFactory lazy = new LazyFurnitureFactory(costly);
+            for (FurnitureFactory factory : new FurnitureFactory[] {costly, lazy}) {
+                long start = System.nanoTime();
+                FurnitureSet sets = factory.createSets(n);
+                for (int i = 0; i < n; i += 10) {
+                    sets.chair(i).sitOn();
+                    sets.table(i).putOn();
+                }
+                System.out.printf("  %-24s %6.1f ns/set%n", factory == lazy ? "lazy proxies" : "eager",
+                        (System.nanoTime() - start) / (double) n);
+            }
+            System.out.println("  " + lazy);
+        }
+    }
+
+    // Chairs take 20 ms and tables 30 ms of simulated I/O: 50 ms per set in sequence, 30 ms async
+    static void measureAsyncSets() {
+        FurnitureFactory slow = new FurnitureFactory() {
+            @Override public Chair createChair() {
+                LockSupport.parkNanos(20_000_000);
+                return new ModernChairGood();
+            }
+
+            @Override public Table createTable() {
+                LockSupport.parkNanos(30_000_000);
+                return new ModernTableGood();
+            }
+        };
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            AsyncFurnitureFactory async = AsyncFurnitureFactory.of(slow, executor);
+            int sets = 20;
+            long start = System.nanoTime();
+            for (int i = 0; i < sets; i++) {
+                blackhole = slow.createChair();
+                blackhole = slow.createTable();
+            }
+            System.out.printf("  %-24s %6.1f ms/set%n", "sequential", (System.nanoTime() - start) / 1e6 / sets);
+            start = System.nanoTime();
+            for (int i = 0; i < sets; i++) blackhole = async.createSetAsync().join();
+            System.out.printf("  %-24s %6.1f ms/set%n", "async matched set", (System.nanoTime() - start) / 1e6 / sets);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Per-thread allocation counter (HotSpot extension)
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    // 500k sets per batch: the pair of factory calls per set into lists, against createSets
+    static void measureSetCreation() {
+        int n = 500_000;
+        FurnitureFactory modern = new ModernFurnitureFactory();
+        Map<String, Supplier<Object>> cases = new LinkedHashMap<>();
+        cases.put("pair of calls, n times", () -> {
+            List<Chair> chairs = new ArrayList<>();
+            List<Table> tables = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                chairs.add(modern.createChair());
+                tables.add(modern.createTable());
+            }
+            return tables;
+        });
+        cases.put("createSets", () -> modern.createSets(n));
+
+        for (int round = 1; round <= 3; round++) {
+            System.out.println("Round " + round);
+            cases.forEach((name, batch) -> {
+                int batches = 20;
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                for (int b = 0; b < batches; b++) blackhole = batch.get();
+                double sets = (double) batches * n;
+                System.out.printf("  %-24s %6.2f ns/set %6.1f B/set%n", name,
+                        (System.nanoTime() - start) / sets, (allocatedBytes() - bytes) / sets);
+            });
+        }
+    }
+
+    // 64 threads resolving styles while one writer hot-adds a style every millisecond,
+    // against the same lookups through a synchronized map
+    static void measureRegistryContention() throws InterruptedException {
+        FurnitureFactoryRegistry registry = new FurnitureFactoryRegistry();
+        Map<String, FurnitureFactory> locked = Collections.synchronizedMap(new HashMap<>());
+        locked.put("modern", new ModernFurnitureFactory());
+        locked.put("victorian", new VictorianFurnitureFactory());
+        Function<String, FurnitureFactory> lockedGet = style -> {
+            FurnitureFactory factory = locked.get(style);
+            return factory != null ? factory : locked.get(style.toLowerCase(Locale.ROOT));
+        };
+
+        for (int round = 1; round <= 2; round++) {
+            System.out.println("Round " + round);
+            contend("copy-on-write registry", registry::get, registry::register);
+            contend("synchronized map", lockedGet, (style, factory) -> locked.put(style, factory));
+        }
+    }
+
+    private static void contend(String name, Function<String, FurnitureFactory> read,
+                                BiConsumer<String, FurnitureFactory> write) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < READERS; t++) {
+            threads.add(new Thread(() -> {
+                long count = 0;
+                Object last = null;
+                while (running.get()) {
+                    last = read.apply(STYLES[(int) (count++ & 3)]);
+                }
+                blackhole = last;
+                reads.add(count);
+            }));
+        }
+        long[] writes = new long[1];
+        threads.add(new Thread(() -> {
+            FurnitureFactory factory = new ModernFurnitureFactory();
+            while (running.get()) {
+                write.accept("hot-" + (writes[0]++ % 16), factory);
+                LockSupport.parkNanos(1_000_000);
+            }
+        }));
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        Thread.sleep(RUN_MILLIS);
+        running.set(false);
+        for (Thread thread : threads) thread.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %-24s %,14.0f reads/s, %,d writes%n", name, reads.sum() / seconds, writes[0]);
+    }
 }
 
 // Demo class
@@ -122,5 +552,31 @@ public class AbstractFactoryExample {
         System.out.println("\n=== With Abstract Factory (Victorian) ===");
         // Client works with factory directly - pure Abstract Factory pattern
         GoodFurnitureClient.createFurniture(new VictorianFurnitureFactory());
+        
+        System.out.println("\n=== Style picked from a string through the registry ===");
+        FurnitureFactoryRegistry registry = new FurnitureFactoryRegistry();
+        GoodFurnitureClient.createFurniture(registry, "Victorian");
+        // New styles can be published while other threads are reading
+        registry.register("minimalist", new ModernFurnitureFactory());
+        System.out.println("Styles: " + registry.styles());
+        
+        System.out.println("\n=== Matched sets in bulk ===");
+        FurnitureSet sets = registry.get("modern").createSets(3);
+        System.out.println(sets.size() + " sets created");
+        sets.chair(0).sitOn();
+        sets.table(0).putOn();
+        
+        System.out.println("\n=== Chair and table built concurrently ===");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        FurnitureSet set = AsyncFurnitureFactory.of(new VictorianFurnitureFactory(), executor).createSetAsync().join();
+        executor.shutdown();
+        set.chair(0).sitOn();
+        set.table(0).putOn();
+        
+        System.out.println("\n=== Lazy products, built on first use ===");
+        LazyFurnitureFactory lazy = new LazyFurnitureFactory(new ModernFurnitureFactory());
+        FurnitureSet lazySets = lazy.createSets(1_000);
+        lazySets.chair(7).sitOn();
+        System.out.println(lazy);
     }
 }
\ No newline at end of file
@@ -6,6 +6,13 @@
  * representations.
  */
 
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
 /**
  * Bad Example: Class with complex constructor
  * Problems:
@@ -130,11 +137,33 @@ class Pizza {
         
         // build method to create the Pizza object
         public Pizza build() {
-            return new Pizza(this);
+            PizzaBuildEvent event = new PizzaBuildEvent();
+            event.begin();
+            Pizza pizza = new Pizza(this);
+            if (event.shouldCommit()) {
+                event.crust = crust;
+                event.productClass = pizza.getClass();
+                event.commit();
+            }
+            return pizza;
         }
     }
 }
 
+// Flight Recorder event for Pizza.Builder.build() (see creation-events.jfc)
+@Name("designpatterns.PizzaBuild")
+@Label("Pizza Build")
+@Category({"Design Patterns", "Builder"})
+@Enabled(false)
+@Threshold("1 ms")
+class PizzaBuildEvent extends Event {
+    @Label("Crust")
+    String crust;
+
+    @Label("Product Class")
+    Class<?> productClass;
+}
+
 public class BuilderPattern {
     public static void main(String[] args) {
         System.out.println("=== Builder Pattern Example ===");
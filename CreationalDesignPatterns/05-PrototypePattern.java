@@ -6,6 +6,13 @@
  * 2. Good Example - Using Prototype pattern (cloning pre-configured objects)
  */
 
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
 // ------------------- BAD EXAMPLE -------------------
 // Problem: Creating complex objects from scratch each time
 
@@ -101,16 +108,38 @@ class Employee implements Cloneable {
     @Override
     public Employee clone() {
         System.out.println("Cloning " + role + " (fast operation)");
+        // Timed from here, so the event measures the copy rather than the console write
+        PrototypeCloneEvent event = new PrototypeCloneEvent();
+        event.begin();
         Employee clone = null;
         try {
             clone = (Employee) super.clone();
         } catch (CloneNotSupportedException e) {
             e.printStackTrace();
         }
+        if (event.shouldCommit()) {
+            event.role = role;
+            event.productClass = getClass();
+            event.commit();
+        }
         return clone;
     }
 }
 
+// Flight Recorder event for Employee.clone() (see creation-events.jfc)
+@Name("designpatterns.PrototypeClone")
+@Label("Prototype Clone")
+@Category({"Design Patterns", "Prototype"})
+@Enabled(false)
+@Threshold("1 ms")
+class PrototypeCloneEvent extends Event {
+    @Label("Role")
+    String role;
+
+    @Label("Product Class")
+    Class<?> productClass;
+}
+
 // Client code
 public class PrototypePattern {
     public static void main(String[] args) {
@@ -0,0 +1,95 @@
+/**
+ * Factory Pattern example - batched channel output for shapes
+ */
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// Collects lines in a reusable buffer and writes them to a channel in large chunks (not thread-safe)
+class BatchedRenderSink implements RenderSink {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final WritableByteChannel channel;
+    // Lone surrogates become '?', as with println, instead of stalling the buffer
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+
+    public BatchedRenderSink(WritableByteChannel channel) {
+        this(channel, 64 * 1024);
+    }
+
+    public BatchedRenderSink(WritableByteChannel channel, int bufferChars) {
+        this.channel = channel;
+        this.chars = CharBuffer.allocate(bufferChars);
+        // Sized for the worst case, so one encode call always drains the whole char buffer
+        this.bytes = ByteBuffer.allocateDirect((int) Math.ceil(bufferChars * encoder.maxBytesPerChar()));
+    }
+
+    // Standard output without going through System.out; call flush() when done
+    public static BatchedRenderSink stdout() {
+        return new BatchedRenderSink(Channels.newChannel(new FileOutputStream(FileDescriptor.out)));
+    }
+
+    @Override
+    public void write(CharSequence line) {
+        append(line);
+        append(LINE_SEPARATOR);
+    }
+
+    private void append(CharSequence text) {
+        for (int i = 0; i < text.length(); ) {
+            if (!chars.hasRemaining()) drain();
+            int n = Math.min(chars.remaining(), text.length() - i);
+            chars.append(text, i, i + n);
+            i += n;
+        }
+    }
+
+    @Override
+    public void flush() {
+        drain(true);
+    }
+
+    private void drain() {
+        drain(false);
+    }
+
+    // Mid-stream, a trailing high surrogate stays behind in chars until its pair arrives;
+    // at the end of input it is written (replaced) too
+    private void drain(boolean endOfInput) {
+        chars.flip();
+        CoderResult result = encoder.encode(chars, bytes, endOfInput);
+        if (endOfInput && result.isUnderflow()) result = encoder.flush(bytes);
+        if (result.isError()) {
+            try {
+                result.throwException();
+            } catch (CharacterCodingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (endOfInput) encoder.reset();
+        chars.compact();
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) channel.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Factory Pattern example - drawing shapes grouped by class
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Draws a run of shapes that all share one concrete class
+interface ShapeRunDrawer {
+    void drawRun(Shape[] shapes, int from, int to, RenderSink sink);
+}
+
+// Draws a mixed collection one concrete class at a time. A single loop over many classes leaves
+// its draw() call site megamorphic, so the JIT stops inlining; here each registered class gets
+// its own loop with its own call site that only ever sees that class.
+// Shapes of one class keep their relative order, but classes are drawn one after another.
+class GroupedShapeRenderer {
+    private final Map<Class<?>, ShapeRunDrawer> drawers = new HashMap<>();
+
+    public GroupedShapeRenderer() {
+        // One lambda per class on purpose: a shared generic loop would share one call site again
+        register(CircleGood.class, (shapes, from, to, sink) -> {
+            for (int i = from; i < to; i++) ((CircleGood) shapes[i]).draw(sink);
+        });
+        register(RectangleGood.class, (shapes, from, to, sink) -> {
+            for (int i = from; i < to; i++) ((RectangleGood) shapes[i]).draw(sink);
+        });
+        register(TriangleGood.class, (shapes, from, to, sink) -> {
+            for (int i = from; i < to; i++) ((TriangleGood) shapes[i]).draw(sink);
+        });
+        register(GeometricCircle.class, (shapes, from, to, sink) -> {
+            for (int i = from; i < to; i++) ((GeometricCircle) shapes[i]).draw(sink);
+        });
+        register(GeometricRectangle.class, (shapes, from, to, sink) -> {
+            for (int i = from; i < to; i++) ((GeometricRectangle) shapes[i]).draw(sink);
+        });
+        register(GeometricTriangle.class, (shapes, from, to, sink) -> {
+            for (int i = from; i < to; i++) ((GeometricTriangle) shapes[i]).draw(sink);
+        });
+    }
+
+    // Plug-in shapes can add their own loop; unregistered classes still get a homogeneous run
+    public void register(Class<? extends Shape> type, ShapeRunDrawer drawer) {
+        drawers.put(type, drawer);
+    }
+
+    // Partitions once; keep the result to redraw an unchanged scene every frame
+    public GroupedScene group(Collection<? extends Shape> shapes) {
+        Map<Class<?>, List<Shape>> groups = new LinkedHashMap<>();
+        for (Shape shape : shapes) groups.computeIfAbsent(shape.getClass(), c -> new ArrayList<>()).add(shape);
+
+        List<Shape[]> runs = new ArrayList<>(groups.size());
+        List<ShapeRunDrawer> runDrawers = new ArrayList<>(groups.size());
+        for (Map.Entry<Class<?>, List<Shape>> group : groups.entrySet()) {
+            runs.add(group.getValue().toArray(new Shape[0]));
+            runDrawers.add(drawers.get(group.getKey()));
+        }
+        return new GroupedScene(runs.toArray(new Shape[0][]), runDrawers.toArray(new ShapeRunDrawer[0]));
+    }
+
+    public void draw(Collection<? extends Shape> shapes, RenderSink sink) {
+        group(shapes).draw(sink);
+    }
+
+    // Homogeneous runs, each with the loop registered for its class (null if none)
+    static final class GroupedScene {
+        private final Shape[][] runs;
+        private final ShapeRunDrawer[] runDrawers;
+
+        private GroupedScene(Shape[][] runs, ShapeRunDrawer[] runDrawers) {
+            this.runs = runs;
+            this.runDrawers = runDrawers;
+        }
+
+        public void draw(RenderSink sink) {
+            for (int r = 0; r < runs.length; r++) {
+                Shape[] run = runs[r];
+                if (runDrawers[r] != null) {
+                    runDrawers[r].drawRun(run, 0, run.length, sink);
+                } else {
+                    for (Shape shape : run) shape.draw(sink);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Factory Pattern example - fixed-rate render loop
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+// Display list for one frame: filled by the update thread, then drawn by the render thread
+class RenderFrame {
+    private Shape[] shapes = new Shape[64];
+    private int size;
+    private long tick;
+
+    public void add(Shape shape) {
+        if (size == shapes.length) shapes = Arrays.copyOf(shapes, size * 2);
+        shapes[size++] = shape;
+    }
+
+    public int size() { return size; }
+    public Shape get(int i) { return shapes[i]; }
+    public long tick() { return tick; }
+
+    // Keeps the array; stale references are overwritten by the next frame instead of cleared
+    void reset(long tick) {
+        this.tick = tick;
+        this.size = 0;
+    }
+}
+
+interface SceneUpdater {
+    void update(long tick, RenderFrame frame);
+}
+
+// Runs scene updates and drawing on two threads at a fixed rate. Frames move between them through
+// three preallocated buffers: the updater fills the back buffer and swaps it into the middle slot,
+// the renderer swaps the middle slot out when it holds a new frame. The swap is a single atomic
+// exchange, so neither side ever waits for the other and drawing never sees a half-built frame.
+class RenderScheduler implements AutoCloseable {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4; // middle slot holds a frame that has not been drawn yet
+
+    private final RenderFrame[] frames = {new RenderFrame(), new RenderFrame(), new RenderFrame()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;  // update thread only
+    private int front = 2; // render thread only
+
+    private final SceneUpdater updater;
+    private final RenderSink sink;
+    private final long periodNanos;
+    private final Thread updateThread;
+    private final Thread renderThread;
+    private volatile boolean running;
+
+    // Frame times are written by the render thread only and read by stats()
+    private final AtomicLongArray frameTimes = new AtomicLongArray(ShapeFactoryMetrics.BUCKETS);
+    private final AtomicLong framesDrawn = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong missedUpdates = new AtomicLong();
+    private final AtomicLong missedRenders = new AtomicLong();
+
+    public RenderScheduler(SceneUpdater updater, RenderSink sink, int framesPerSecond) {
+        this(updater, sink, framesPerSecond, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public RenderScheduler(SceneUpdater updater, RenderSink sink, int framesPerSecond, ThreadFactory threadFactory) {
+        if (framesPerSecond <= 0) throw new IllegalArgumentException("framesPerSecond must be positive");
+        this.updater = updater;
+        this.sink = sink;
+        this.periodNanos = 1_000_000_000L / framesPerSecond;
+        this.updateThread = threadFactory.newThread(() -> runAtFixedRate(this::update, missedUpdates));
+        this.renderThread = threadFactory.newThread(() -> runAtFixedRate(tick -> render(), missedRenders));
+        updateThread.setName("shape-update");
+        renderThread.setName("shape-render");
+    }
+
+    public void start() {
+        running = true;
+        updateThread.start();
+        renderThread.start();
+    }
+
+    // Stops both threads and waits for the frame in progress to finish
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(updateThread);
+        LockSupport.unpark(renderThread);
+        try {
+            updateThread.join();
+            renderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Ticks whose deadline passed while the previous step was still running are skipped, not
+    // run back to back, so a slow frame does not cause a burst of catch-up frames
+    private void runAtFixedRate(LongConsumer step, AtomicLong missed) {
+        try {
+            long start = System.nanoTime();
+            long tick = 0;
+            while (running) {
+                step.accept(tick);
+                tick++;
+                long late = System.nanoTime() - (start + tick * periodNanos);
+                if (late > 0) {
+                    long skipped = late / periodNanos + 1;
+                    missed.addAndGet(skipped);
+                    tick += skipped;
+                }
+                long wait;
+                while (running && (wait = start + tick * periodNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, wait);
+                }
+            }
+        } finally {
+            running = false; // if one side fails, the other stops too
+        }
+    }
+
+    private void update(long tick) {
+        RenderFrame frame = frames[back];
+        frame.reset(tick);
+        updater.update(tick, frame);
+        int previous = middle.getAndSet(back | FRESH);
+        if ((previous & FRESH) != 0) framesDropped.incrementAndGet(); // replaced before it was drawn
+        back = previous & INDEX_MASK;
+    }
+
+    private void render() {
+        if ((middle.get() & FRESH) == 0) return; // nothing new; the last frame stays on screen
+        front = middle.getAndSet(front) & INDEX_MASK;
+        RenderFrame frame = frames[front];
+        long start = System.nanoTime();
+        for (int i = 0; i < frame.size(); i++) frame.get(i).draw(sink);
+        sink.flush();
+        int bucket = ShapeFactoryMetrics.bucket(System.nanoTime() - start);
+        frameTimes.lazySet(bucket, frameTimes.get(bucket) + 1);
+        framesDrawn.incrementAndGet();
+    }
+
+    public Stats stats() {
+        long[] counts = new long[frameTimes.length()];
+        for (int i = 0; i < counts.length; i++) counts[i] = frameTimes.get(i);
+        return new Stats(framesDrawn.get(), framesDropped.get(), missedUpdates.get(), missedRenders.get(), counts);
+    }
+
+    public static final class Stats {
+        private final long framesDrawn;
+        private final long framesDropped;
+        private final long missedUpdates;
+        private final long missedRenders;
+        private final long[] frameTimeCounts;
+
+        private Stats(long framesDrawn, long framesDropped, long missedUpdates, long missedRenders, long[] frameTimeCounts) {
+            this.framesDrawn = framesDrawn;
+            this.framesDropped = framesDropped;
+            this.missedUpdates = missedUpdates;
+            this.missedRenders = missedRenders;
+            this.frameTimeCounts = frameTimeCounts;
+        }
+
+        public long framesDrawn() { return framesDrawn; }
+        // Frames built by the updater but replaced before the renderer picked them up
+        public long framesDropped() { return framesDropped; }
+        // Ticks skipped because the previous step overran its slot
+        public long missedUpdates() { return missedUpdates; }
+        public long missedRenders() { return missedRenders; }
+
+        // Time to draw one frame, lower bound of the bucket holding the percentile (0-100), in nanoseconds
+        public long frameTimePercentile(double percentile) {
+            return ShapeFactoryMetrics.percentile(frameTimeCounts, percentile);
+        }
+
+        @Override
+        public String toString() {
+            return "drawn=" + framesDrawn + ", dropped=" + framesDropped + ", missedUpdates=" + missedUpdates
+                    + ", missedRenders=" + missedRenders + ", p50=" + frameTimePercentile(50)
+                    + "ns, p99=" + frameTimePercentile(99) + "ns, max=" + frameTimePercentile(100) + "ns";
+        }
+    }
+}
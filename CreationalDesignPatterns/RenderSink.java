@@ -0,0 +1,14 @@
+/**
+ * Factory Pattern example - the output interface shapes draw through
+ */
+
+// Where shapes draw to - lets large scenes skip the per-line PrintStream lock and flush.
+// Public, since plug-in shapes draw to it
+public interface RenderSink {
+    void write(CharSequence line);
+
+    default void flush() {}
+
+    RenderSink CONSOLE = System.out::println;
+    RenderSink DISCARD = line -> {}; // for benchmarks
+}
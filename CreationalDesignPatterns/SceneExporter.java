@@ -0,0 +1,286 @@
+/**
+ * Factory Pattern example - streaming SVG and binary scene export
+ */
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Writes a scene shape by shape, as SVG or as a compact binary format, straight to a channel.
+// Output goes through a few reusable direct buffers, so memory use does not grow with the scene.
+// With gzip on, compression runs on its own thread while the caller keeps encoding shapes.
+// close() finishes the document; the channel stays open and belongs to the caller.
+class SceneExporter implements AutoCloseable {
+    enum Format { SVG, BINARY }
+
+    // Binary layout (big-endian): "SHPS", int version, float width, float height, then per shape
+    // byte kind + float x, y, width, height, and a 0xFF kind byte to end the scene
+    static final int MAGIC = 0x53485053;
+    static final int VERSION = 1;
+    private static final byte END_OF_SCENE = (byte) 0xFF;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int BUFFERS = 3;
+    private static final ByteBuffer NO_MORE_INPUT = ByteBuffer.allocate(0);
+    private static final float MAX_FIXED = 1e15f; // larger magnitudes skip the fixed-point formatting
+
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final float sceneHeight;
+    private final byte[] digits = new byte[20];
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    // Gzip pipeline: filled buffers go to the compressor, which hands them back once consumed
+    private final BlockingQueue<ByteBuffer> filled;
+    private final BlockingQueue<ByteBuffer> free;
+    private final Thread compressor;
+    private volatile Throwable compressorFailure;
+
+    public SceneExporter(WritableByteChannel channel, Format format, float width, float height, boolean gzip) throws IOException {
+        if (format == Format.SVG && !(Float.isFinite(width) && Float.isFinite(height))) {
+            throw new IllegalArgumentException("SVG has no values for a scene of size " + width + " x " + height);
+        }
+        this.channel = channel;
+        this.format = format;
+        this.sceneHeight = height;
+        if (gzip) {
+            filled = new ArrayBlockingQueue<>(BUFFERS);
+            free = new ArrayBlockingQueue<>(BUFFERS);
+            for (int i = 1; i < BUFFERS; i++) free.add(ByteBuffer.allocateDirect(BUFFER_BYTES));
+            compressor = new Thread(this::compress, "scene-gzip");
+            compressor.setDaemon(true);
+            compressor.start();
+        } else {
+            filled = free = null;
+            compressor = null;
+        }
+
+        if (format == Format.SVG) {
+            putAscii("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+            putNumber(width);
+            putAscii("\" height=\"");
+            putNumber(height);
+            putAscii("\">\n");
+        } else {
+            ensure(16);
+            buffer.putInt(MAGIC).putInt(VERSION).putFloat(width).putFloat(height);
+        }
+    }
+
+    public void write(GeometricShape shape) throws IOException {
+        if (format == Format.BINARY) {
+            ensure(17);
+            buffer.put((byte) shape.kind().ordinal())
+                    .putFloat(shape.x()).putFloat(shape.y()).putFloat(shape.width()).putFloat(shape.height());
+            return;
+        }
+        // SVG's y axis points down, so flip from the scene's bottom-up coordinates
+        float left = shape.x(), top = sceneHeight - shape.y() - shape.height();
+        float w = shape.width(), h = shape.height();
+        // Checked before any output, so a rejected shape leaves no partial element behind
+        if (!Float.isFinite(left + w) || !Float.isFinite(top + h) || !Float.isFinite(w / 2) || !Float.isFinite(h / 2)) {
+            throw new IllegalArgumentException("SVG has no values for a " + shape.kind() + " at " + shape.x() + ", "
+                    + shape.y() + " of size " + w + " x " + h);
+        }
+        switch (shape.kind()) {
+            case CIRCLE:
+                putAscii("<circle cx=\"");
+                putNumber(left + w / 2);
+                putAscii("\" cy=\"");
+                putNumber(top + h / 2);
+                putAscii("\" r=\"");
+                putNumber(w / 2);
+                break;
+            case RECTANGLE:
+                putAscii("<rect x=\"");
+                putNumber(left);
+                putAscii("\" y=\"");
+                putNumber(top);
+                putAscii("\" width=\"");
+                putNumber(w);
+                putAscii("\" height=\"");
+                putNumber(h);
+                break;
+            default:
+                putAscii("<polygon points=\"");
+                putNumber(left);
+                putAscii(",");
+                putNumber(top + h);
+                putAscii(" ");
+                putNumber(left + w);
+                putAscii(",");
+                putNumber(top + h);
+                putAscii(" ");
+                putNumber(left + w / 2);
+                putAscii(",");
+                putNumber(top);
+        }
+        putAscii("\" fill=\"#");
+        int rgb = TiledRasterizer.COLORS[shape.kind().ordinal()];
+        for (int shift = 20; shift >= 0; shift -= 4) putAscii(Character.forDigit((rgb >>> shift) & 0xF, 16));
+        putAscii("\"/>\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (format == Format.SVG) {
+            putAscii("</svg>\n");
+        } else {
+            ensure(1);
+            buffer.put(END_OF_SCENE);
+        }
+        flushBuffer();
+        if (compressor != null) {
+            handOff(NO_MORE_INPUT);
+            try {
+                compressor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for gzip");
+            }
+            checkCompressor();
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) flushBuffer();
+    }
+
+    private void putAscii(String text) throws IOException {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) buffer.put((byte) text.charAt(i));
+    }
+
+    private void putAscii(char c) throws IOException {
+        ensure(1);
+        buffer.put((byte) c);
+    }
+
+    // Up to two decimals, formatted by hand so no String is created per number. Magnitudes whose
+    // hundredths would not fit in a long fall back to Float.toString, which SVG also parses;
+    // write() has already rejected NaN and infinities
+    private void putNumber(float value) throws IOException {
+        if (Math.abs(value) >= MAX_FIXED) {
+            putAscii(Float.toString(value));
+            return;
+        }
+        long scaled = Math.round(value * 100.0);
+        ensure(digits.length + 4);
+        if (scaled < 0) {
+            buffer.put((byte) '-');
+            scaled = -scaled;
+        }
+        long whole = scaled / 100;
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + whole % 10);
+            whole /= 10;
+        } while (whole > 0);
+        while (n > 0) buffer.put(digits[--n]);
+        int fraction = (int) (scaled % 100);
+        if (fraction != 0) {
+            buffer.put((byte) '.').put((byte) ('0' + fraction / 10));
+            if (fraction % 10 != 0) buffer.put((byte) ('0' + fraction % 10));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        if (compressor == null) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+            return;
+        }
+        handOff(buffer);
+        try {
+            buffer = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for gzip");
+        }
+        checkCompressor();
+    }
+
+    private void handOff(ByteBuffer filledBuffer) throws IOException {
+        checkCompressor();
+        try {
+            filled.put(filledBuffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for gzip");
+        }
+    }
+
+    private void checkCompressor() throws IOException {
+        if (compressorFailure != null) throw new IOException("gzip compression failed", compressorFailure);
+    }
+
+    // Runs on the compressor thread: a gzip member written by hand around a raw Deflater, so it
+    // can read the direct buffers without copying them into byte arrays
+    private void compress() {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        CRC32 crc = new CRC32();
+        ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long inputBytes = 0;
+        try {
+            out.put(new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+            for (ByteBuffer in = filled.take(); in != NO_MORE_INPUT; in = filled.take()) {
+                inputBytes += in.remaining();
+                crc.update(in.duplicate());
+                deflater.setInput(in);
+                while (!deflater.needsInput()) deflateInto(deflater, out);
+                // Detach before recycling, or finish() would read the reused buffer again
+                deflater.setInput(NO_MORE_INPUT);
+                in.clear();
+                free.put(in);
+            }
+            deflater.finish();
+            while (!deflater.finished()) deflateInto(deflater, out);
+            if (out.remaining() < 8) drain(out);
+            out.putInt((int) crc.getValue()).putInt((int) inputBytes);
+            drain(out);
+        } catch (Throwable e) {
+            compressorFailure = e;
+            // Keep the producer from waiting forever on a buffer that will never come back
+            free.offer(ByteBuffer.allocateDirect(BUFFER_BYTES));
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void deflateInto(Deflater deflater, ByteBuffer out) throws IOException {
+        deflater.deflate(out);
+        if (!out.hasRemaining()) drain(out);
+    }
+
+    private void drain(ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) channel.write(out);
+        out.clear();
+    }
+
+    // Loads a binary scene into a ShapeBatch
+    public static ShapeBatch readBinary(ReadableByteChannel in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(Channels.newInputStream(in)));
+        if (data.readInt() != MAGIC || data.readInt() != VERSION) throw new IOException("Not a binary shape scene");
+        data.readFloat(); // width
+        data.readFloat(); // height
+        ShapeType[] types = ShapeType.values();
+        ShapeBatch batch = new ShapeBatch();
+        for (byte kind = data.readByte(); kind != END_OF_SCENE; kind = data.readByte()) {
+            if (kind < 0 || kind >= types.length) throw new IOException("Not a binary shape scene");
+            batch.add(types[kind], data.readFloat(), data.readFloat(), data.readFloat(), data.readFloat());
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Factory Pattern example - the product interface
+ */
+
+// Common interface. Public, so plug-in shapes from another class loader can implement it
+public interface Shape {
+    void draw(RenderSink sink);
+
+    // Original entry point: one println per call, as before
+    default void draw() { draw(RenderSink.CONSOLE); }
+}
@@ -0,0 +1,102 @@
+/**
+ * Factory Pattern example - struct-of-arrays storage for shapes with geometry
+ */
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Struct-of-arrays store for shapes with geometry: one primitive array per field instead of one
+// object per shape, so there are no per-shape headers or pointers and scans walk memory in order.
+// Uses the same box convention as GeometricShape.
+class ShapeBatch {
+    private static final ShapeType[] TYPES = ShapeType.values();
+    private static final Shape[] DRAWERS = new ShapeFactory(true).createShapes(TYPES);
+
+    private byte[] kinds;
+    private float[] x, y, width, height;
+    private int size;
+
+    public ShapeBatch() {
+        this(1024);
+    }
+
+    public ShapeBatch(int initialCapacity) {
+        kinds = new byte[initialCapacity];
+        x = new float[initialCapacity];
+        y = new float[initialCapacity];
+        width = new float[initialCapacity];
+        height = new float[initialCapacity];
+    }
+
+    // Returns the index of the new shape
+    public int add(ShapeType kind, float x, float y, float width, float height) {
+        if (size == kinds.length) grow();
+        kinds[size] = (byte) kind.ordinal();
+        this.x[size] = x;
+        this.y[size] = y;
+        this.width[size] = width;
+        this.height[size] = kind == ShapeType.CIRCLE ? width : height;
+        return size++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, kinds.length * 2);
+        kinds = Arrays.copyOf(kinds, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+    }
+
+    // For moving shapes
+    public void moveTo(int i, float x, float y) {
+        this.x[i] = x;
+        this.y[i] = y;
+    }
+
+    public int size() { return size; }
+    public ShapeType kind(int i) { return TYPES[kinds[i]]; }
+    public float x(int i) { return x[i]; }
+    public float y(int i) { return y[i]; }
+    public float width(int i) { return width[i]; }
+    public float height(int i) { return height[i]; }
+
+    // Backing arrays for bulk readers such as ShapeGeometryEngine: valid in [0, size()), and
+    // replaced when the batch grows, so fetch them again after adding
+    byte[] kindArray() { return kinds; }
+    float[] xArray() { return x; }
+    float[] yArray() { return y; }
+    float[] widthArray() { return width; }
+    float[] heightArray() { return height; }
+
+    // A standalone Shape for one entry, for code that still expects objects
+    public View view(int i) {
+        return new View(i);
+    }
+
+    // Visits every entry through one reused view - keep no reference to it after the call
+    public void forEach(Consumer<? super View> action) {
+        View cursor = new View(0);
+        for (int i = 0; i < size; i++) {
+            cursor.index = i;
+            action.accept(cursor);
+        }
+    }
+
+    // Flyweight view: only an index into the arrays
+    public final class View implements GeometricShape {
+        private int index;
+
+        private View(int index) { this.index = index; }
+
+        @Override public ShapeType kind() { return ShapeBatch.this.kind(index); }
+        @Override public float x() { return x[index]; }
+        @Override public float y() { return y[index]; }
+        @Override public float width() { return width[index]; }
+        @Override public float height() { return height[index]; }
+        @Override public double area() { return GeometricShape.area(kind(), width(), height()); }
+        @Override public double perimeter() { return GeometricShape.perimeter(kind(), width(), height()); }
+
+        @Override public void draw(RenderSink sink) { DRAWERS[kinds[index]].draw(sink); }
+    }
+}
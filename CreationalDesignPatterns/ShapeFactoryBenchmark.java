@@ -0,0 +1,552 @@
+/**
+ * Factory Pattern example - benchmarks for the shape factory and the subsystems built on it
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Rough timing harness (plain nanoTime loops - no JMH dependency in this repo)
+class ShapeFactoryBenchmark {
+    // Power-of-two length so the input index is a cheap mask
+    private static final String[] INPUTS = {
+        "circle", "RECTANGLE", "Triangle", "CIRCLE", "rectangle", "TRIANGLE", "Circle", "Rectangle"
+    };
+    private static final String[] UPPER_INPUTS = new String[INPUTS.length];
+    private static final ShapeType[] TYPES = new ShapeType[INPUTS.length];
+    private static final int MASK = INPUTS.length - 1;
+    private static final int ITERATIONS = 5_000_000;
+    private static final int ROUNDS = 3;
+    static Shape blackhole; // keeps the JIT from discarding created shapes
+
+    static {
+        for (int i = 0; i < INPUTS.length; i++) {
+            UPPER_INPUTS[i] = INPUTS[i].toUpperCase(Locale.ROOT);
+            TYPES[i] = ShapeType.parse(INPUTS[i]);
+        }
+    }
+
+    // The BadExample chain: exact-case equals() calls, one after another
+    static Shape ifElseChain(String type) {
+        if (type.equals("CIRCLE")) return new CircleGood();
+        else if (type.equals("RECTANGLE")) return new RectangleGood();
+        else if (type.equals("TRIANGLE")) return new TriangleGood();
+        return null;
+    }
+
+    // The original lookup: allocates an upper-cased copy on every call
+    static Shape toUpperCaseSwitch(String type) {
+        switch (type.toUpperCase()) {
+            case "CIRCLE": return new CircleGood();
+            case "RECTANGLE": return new RectangleGood();
+            case "TRIANGLE": return new TriangleGood();
+            default: return null;
+        }
+    }
+
+    // Per-thread allocation counter (HotSpot extension), a stand-in for JMH's -prof gc
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    // Each case receives the iteration index and picks its own input from it
+    static String measure(IntFunction<Shape> op) {
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) blackhole = op.apply(i & MASK);
+        double nanos = (System.nanoTime() - start) / (double) ITERATIONS;
+        return String.format("%6.2f ns/op %6.1f B/op", nanos, (allocatedBytes() - bytes) / (double) ITERATIONS);
+    }
+
+    public static void main(String[] args) throws Exception {
+        ShapeFactory factory = new ShapeFactory();
+        ShapeFactory sharedFactory = new ShapeFactory(true);
+        ShapeRegistry registry = new ShapeRegistry();
+        Map<String, IntFunction<Shape>> cases = new LinkedHashMap<>();
+        cases.put("if/else equals chain", i -> ifElseChain(UPPER_INPUTS[i]));
+        cases.put("toUpperCase + switch", i -> toUpperCaseSwitch(INPUTS[i]));
+        cases.put("folded hash table", i -> factory.createShape(INPUTS[i]));
+        cases.put("enum ordinal array", i -> factory.createShape(TYPES[i]));
+        cases.put("registry, upper-case", i -> registry.createShape(UPPER_INPUTS[i]));
+        cases.put("registry, mixed-case", i -> registry.createShape(INPUTS[i]));
+        cases.put("shared, string", i -> sharedFactory.createShape(INPUTS[i]));
+        cases.put("shared, enum", i -> sharedFactory.createShape(TYPES[i]));
+
+        // Alternate the cases over several rounds; the early rounds double as warm-up
+        for (int round = 1; round <= ROUNDS; round++) {
+            System.out.println("Round " + round);
+            cases.forEach((name, op) -> System.out.printf("  %-24s %s%n", name, measure(op)));
+        }
+        
+        measureBulkScaling();
+        measureRenderSinks();
+        measureFileIngest();
+        measureBatchFootprint();
+        measureGeometry();
+        measureGroupedDraw();
+        measureSpatialIndex();
+        measureRasterizer();
+        measureExport();
+        measureScripts();
+        measureMetricsOverhead();
+        measureCollisions();
+        measureRenderLoop();
+        measureShapeService();
+    }
+
+    // Request/response round trips over loopback at growing connection counts, up to 10k
+    static void measureShapeService() throws IOException {
+        try (ShapeService service = new ShapeService(0, new ShapeFactory(true))) {
+            for (int connections : new int[] {100, 1_000, 10_000}) {
+                System.out.println("Shape service, " + ShapeServiceLoadGenerator.run(service.address(), connections, 5_000));
+            }
+        }
+    }
+
+    // 60 frames per second of 2,000 shapes for two seconds; draw cost is the sink's
+    static void measureRenderLoop() throws InterruptedException {
+        Shape[] shapes = new Shape[2_000];
+        ShapeFactory factory = new ShapeFactory(true);
+        for (int i = 0; i < shapes.length; i++) shapes[i] = factory.createShape(TYPES[i & MASK]);
+        SceneUpdater updater = (tick, frame) -> {
+            for (Shape shape : shapes) frame.add(shape);
+        };
+        try (RenderScheduler scheduler = new RenderScheduler(updater, RenderSink.DISCARD, 60)) {
+            scheduler.start();
+            Thread.sleep(2_000);
+            System.out.println("Render loop at 60 fps, " + shapes.length + " shapes/frame: " + scheduler.stats());
+        }
+    }
+
+    // 10^5 shapes drifting around a wrap-around world; 60 ticks per second leaves 16.7 ms per tick
+    static void measureCollisions() {
+        int count = 100_000, ticks = 600;
+        float world = 20_000;
+        Random random = new Random(11);
+        ShapeBatch batch = new ShapeBatch(count);
+        float[] vx = new float[count], vy = new float[count];
+        for (int i = 0; i < count; i++) {
+            batch.add(TYPES[i & MASK], random.nextFloat() * world, random.nextFloat() * world,
+                    2 + random.nextFloat() * 18, 2 + random.nextFloat() * 18);
+            vx[i] = random.nextFloat() * 4 - 2;
+            vy[i] = random.nextFloat() * 4 - 2;
+        }
+        SweepAndPrune broadPhase = new SweepAndPrune();
+        broadPhase.update(batch);
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        long pairs = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            for (int i = 0; i < count; i++) {
+                batch.moveTo(i, (batch.x(i) + vx[i] + world) % world, (batch.y(i) + vy[i] + world) % world);
+            }
+            pairs += broadPhase.update(batch);
+        }
+        double msPerTick = (System.nanoTime() - start) / 1e6 / ticks;
+        System.out.printf("Sweep and prune, %,d moving shapes: %.2f ms/tick (%.0f ticks/s max), %.1f pairs/tick, %.1f B/tick allocated%n",
+                count, msPerTick, 1000 / msPerTick, pairs / (double) ticks, (allocatedBytes() - bytes) / (double) ticks);
+
+        // 1% of the shapes teleport each tick, far past what insertion sort can repair cheaply
+        int teleportTicks = 30;
+        start = System.nanoTime();
+        for (int tick = 0; tick < teleportTicks; tick++) {
+            for (int i = tick % 100; i < count; i += 100) {
+                batch.moveTo(i, random.nextFloat() * world, random.nextFloat() * world);
+            }
+            broadPhase.update(batch);
+        }
+        System.out.printf("Sweep and prune, 1%% teleporting per tick: %.2f ms/tick%n",
+                (System.nanoTime() - start) / 1e6 / teleportTicks);
+    }
+
+    static void measureMetricsOverhead() {
+        ShapeFactoryMetrics metrics = new ShapeFactoryMetrics();
+        ShapeFactory plain = new ShapeFactory();
+        ShapeFactory instrumented = new ShapeFactory(false, ShapeFactory.DEFAULT_PARALLEL_THRESHOLD, metrics);
+        Map<String, IntFunction<Shape>> cases = new LinkedHashMap<>();
+        cases.put("metrics off", i -> plain.createShape(TYPES[i]));
+        cases.put("metrics on", i -> instrumented.createShape(TYPES[i]));
+        System.out.println("createShape(ShapeType) with and without metrics");
+        for (int round = 1; round <= ROUNDS; round++) {
+            for (Map.Entry<String, IntFunction<Shape>> entry : cases.entrySet()) {
+                String result = measure(entry.getValue());
+                if (round == ROUNDS) System.out.printf("  %-24s %s%n", entry.getKey(), result);
+            }
+        }
+        System.out.println("  " + metrics.snapshot());
+    }
+
+    // What the compiler replaces: re-reading the script text and creating each shape by name
+    static void interpretScript(String script, ShapeFactory factory, Consumer<? super Shape> out) {
+        String[] items = script.split(",");
+        String last = items[items.length - 1].trim();
+        boolean repeats = last.startsWith("repeat ");
+        int repeat = repeats ? Integer.parseInt(last.substring(7).trim()) : 1;
+        int itemCount = repeats ? items.length - 1 : items.length;
+        for (int r = 0; r < repeat; r++) {
+            for (int i = 0; i < itemCount; i++) {
+                String[] words = items[i].trim().split("\\s+");
+                int count = words.length == 2 ? Integer.parseInt(words[0]) : 1;
+                for (int n = 0; n < count; n++) out.accept(factory.createShape(words[words.length - 1]));
+            }
+        }
+    }
+
+    static void measureScripts() {
+        String script = "3 CIRCLE, 2 TRIANGLE, rectangle, 4 Circle, repeat 100000";
+        ShapeFactory factory = new ShapeFactory();
+        Consumer<Shape> sink = shape -> blackhole = shape;
+
+        long start = System.nanoTime();
+        CompiledShapeScript compiled = ShapeScriptCompiler.compile(script);
+        double compileMs = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        ShapeScriptCompiler.compile(script);
+        double cachedUs = (System.nanoTime() - start) / 1e3;
+
+        double interpreted = 0, run = 0;
+        for (int round = 1; round <= ROUNDS; round++) {
+            start = System.nanoTime();
+            interpretScript(script, factory, sink);
+            interpreted = (System.nanoTime() - start) / (double) compiled.shapeCount();
+
+            start = System.nanoTime();
+            compiled.run(sink);
+            run = (System.nanoTime() - start) / (double) compiled.shapeCount();
+        }
+        System.out.printf("Shape script of %,d shapes: compile %.2f ms, cached lookup %.1f us%n",
+                compiled.shapeCount(), compileMs, cachedUs);
+        System.out.printf("  interpreted %6.2f ns/shape, compiled %6.2f ns/shape%n", interpreted, run);
+    }
+
+    // Export throughput and allocation per shape, which should stay near zero at any scene size
+    static void measureExport() throws IOException {
+        int count = 1_000_000;
+        ShapeBatch scene = new ShapeBatch(count);
+        Random random = new Random(3);
+        for (int i = 0; i < count; i++) {
+            scene.add(TYPES[i & MASK], random.nextFloat() * 10_000, random.nextFloat() * 10_000,
+                    1 + random.nextFloat() * 50, 1 + random.nextFloat() * 50);
+        }
+        System.out.println("Exporting " + count + " shapes");
+        for (SceneExporter.Format format : SceneExporter.Format.values()) {
+            for (boolean gzip : new boolean[] {false, true}) {
+                double seconds = 0, bytesPerShape = 0;
+                for (int round = 1; round <= ROUNDS; round++) {
+                    long bytes = allocatedBytes();
+                    long start = System.nanoTime();
+                    try (SceneExporter exporter = new SceneExporter(
+                            Channels.newChannel(OutputStream.nullOutputStream()), format, 10_000, 10_000, gzip)) {
+                        scene.forEach(view -> {
+                            try {
+                                exporter.write(view);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    }
+                    seconds = (System.nanoTime() - start) / 1e9;
+                    bytesPerShape = (allocatedBytes() - bytes) / (double) count;
+                }
+                System.out.printf("  %-6s gzip=%-5b %8.0f shapes/ms %6.2f B/shape allocated%n",
+                        format, gzip, count / seconds / 1000, bytesPerShape);
+            }
+        }
+    }
+
+    // Frames per second filling 100k shapes into a 4K framebuffer; the last frame is saved for inspection
+    static void measureRasterizer() throws IOException {
+        int width = 3840, height = 2160, count = 100_000;
+        ShapeFactory factory = new ShapeFactory();
+        Random random = new Random(7);
+        List<GeometricShape> scene = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            scene.add(factory.createShape(TYPES[i & MASK], random.nextFloat() * width, random.nextFloat() * height,
+                    4 + random.nextFloat() * 36, 4 + random.nextFloat() * 36));
+        }
+        Framebuffer frame = new Framebuffer(width, height);
+        TiledRasterizer rasterizer = new TiledRasterizer();
+
+        int frames = 20;
+        for (int i = 0; i < frames; i++) rasterizer.render(scene, frame); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            frame.clear(0xFFFFFFFF);
+            rasterizer.render(scene, frame);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Path image = Files.createTempFile("shapes", ".png");
+        frame.writePng(image);
+        System.out.printf("Rasterizing %,d shapes at %dx%d on %d core(s): %.1f frames/s (last frame: %s)%n",
+                count, width, height, Runtime.getRuntime().availableProcessors(), frames / seconds, image);
+    }
+
+    // Hit-test latency against scene size: linear scan, uniform grid and STR R-tree
+    static void measureSpatialIndex() {
+        ShapeFactory factory = new ShapeFactory();
+        Random random = new Random(42);
+        int queries = 100_000;
+        System.out.println("hitTest latency (us/query)");
+        for (int count = 1_000; count <= 1_000_000; count *= 10) {
+            // Scene density stays constant as it grows: about 1% of the world is covered
+            float world = (float) Math.sqrt(count) * 100;
+            List<GeometricShape> scene = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                scene.add(factory.createShape(TYPES[i & MASK], random.nextFloat() * world, random.nextFloat() * world,
+                        1 + random.nextFloat() * 19, 1 + random.nextFloat() * 19));
+            }
+            float[][] points = new float[queries][];
+            for (int i = 0; i < queries; i++) points[i] = new float[] {random.nextFloat() * world, random.nextFloat() * world};
+
+            UniformGridIndex grid = new UniformGridIndex(32);
+            for (GeometricShape shape : scene) grid.insert(shape);
+            StrRTree tree = new StrRTree(scene);
+
+            int linearQueries = Math.max(100, queries / (count / 1_000));
+            long start = System.nanoTime();
+            for (int q = 0; q < linearQueries; q++) {
+                int hits = 0;
+                for (GeometricShape shape : scene) if (shape.contains(points[q][0], points[q][1])) hits++;
+                blackhole = hits > 0 ? scene.get(0) : null;
+            }
+            double linear = (System.nanoTime() - start) / 1e3 / linearQueries;
+            double gridUs = timeHitTests(grid, points), treeUs = timeHitTests(tree, points);
+            System.out.printf("  %,9d shapes: linear %9.3f, grid %6.3f, R-tree %6.3f%n", count, linear, gridUs, treeUs);
+        }
+    }
+
+    private static double timeHitTests(SpatialIndex index, float[][] points) {
+        for (float[] p : points) index.hitTest(p[0], p[1]); // warm-up
+        long start = System.nanoTime();
+        for (float[] p : points) blackhole = index.hitTest(p[0], p[1]).isEmpty() ? null : blackhole;
+        return (System.nanoTime() - start) / 1e3 / points.length;
+    }
+
+    // Eight trivial shape classes to make the draw() call site progressively more polymorphic
+    static final class Shape1 implements Shape { @Override public void draw(RenderSink sink) { sink.write("1"); } }
+    static final class Shape2 implements Shape { @Override public void draw(RenderSink sink) { sink.write("2"); } }
+    static final class Shape3 implements Shape { @Override public void draw(RenderSink sink) { sink.write("3"); } }
+    static final class Shape4 implements Shape { @Override public void draw(RenderSink sink) { sink.write("4"); } }
+    static final class Shape5 implements Shape { @Override public void draw(RenderSink sink) { sink.write("5"); } }
+    static final class Shape6 implements Shape { @Override public void draw(RenderSink sink) { sink.write("6"); } }
+    static final class Shape7 implements Shape { @Override public void draw(RenderSink sink) { sink.write("7"); } }
+    static final class Shape8 implements Shape { @Override public void draw(RenderSink sink) { sink.write("8"); } }
+
+    // Mixed-list loop versus a pre-grouped scene as the number of concrete classes grows
+    static void measureGroupedDraw() {
+        List<Supplier<Shape>> kinds = List.of(Shape1::new, Shape2::new, Shape3::new, Shape4::new,
+                Shape5::new, Shape6::new, Shape7::new, Shape8::new);
+        GroupedShapeRenderer renderer = new GroupedShapeRenderer();
+        renderer.register(Shape1.class, (shapes, from, to, sink) -> { for (int i = from; i < to; i++) ((Shape1) shapes[i]).draw(sink); });
+        renderer.register(Shape2.class, (shapes, from, to, sink) -> { for (int i = from; i < to; i++) ((Shape2) shapes[i]).draw(sink); });
+        renderer.register(Shape3.class, (shapes, from, to, sink) -> { for (int i = from; i < to; i++) ((Shape3) shapes[i]).draw(sink); });
+        renderer.register(Shape4.class, (shapes, from, to, sink) -> { for (int i = from; i < to; i++) ((Shape4) shapes[i]).draw(sink); });
+        renderer.register(Shape5.class, (shapes, from, to, sink) -> { for (int i = from; i < to; i++) ((Shape5) shapes[i]).draw(sink); });
+        renderer.register(Shape6.class, (shapes, from, to, sink) -> { for (int i = from; i < to; i++) ((Shape6) shapes[i]).draw(sink); });
+        renderer.register(Shape7.class, (shapes, from, to, sink) -> { for (int i = from; i < to; i++) ((Shape7) shapes[i]).draw(sink); });
+        renderer.register(Shape8.class, (shapes, from, to, sink) -> { for (int i = from; i < to; i++) ((Shape8) shapes[i]).draw(sink); });
+
+        int count = 1 << 20;
+        System.out.println("Drawing " + count + " shapes to RenderSink.DISCARD");
+        for (int types = 1; types <= kinds.size(); types++) {
+            List<Shape> scene = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) scene.add(kinds.get(i % types).get());
+
+            GroupedShapeRenderer.GroupedScene groupedScene = renderer.group(scene);
+
+            double mixed = 0, grouped = 0;
+            for (int round = 1; round <= ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (Shape shape : scene) shape.draw(RenderSink.DISCARD);
+                mixed = (System.nanoTime() - start) / (double) count;
+
+                start = System.nanoTime();
+                groupedScene.draw(RenderSink.DISCARD);
+                grouped = (System.nanoTime() - start) / (double) count;
+            }
+            System.out.printf("  %d type(s): mixed loop %6.2f ns/shape, grouped %6.2f ns/shape%n", types, mixed, grouped);
+        }
+    }
+
+    // Virtual area()/perimeter() per object versus the grouped primitive loops
+    static void measureGeometry() {
+        int count = 1 << 20;
+        ShapeFactory factory = new ShapeFactory();
+        List<GeometricShape> shapes = new ArrayList<>(count);
+        ShapeBatch batch = new ShapeBatch(count);
+        for (int i = 0; i < count; i++) {
+            shapes.add(factory.createShape(TYPES[i & MASK], i, i, 1 + (i & 15), 2));
+            batch.add(TYPES[i & MASK], i, i, 1 + (i & 15), 2);
+        }
+        ShapeGeometryEngine scalar = new ShapeGeometryEngine(batch, ShapeGeometryEngine.SCALAR);
+        // The vector kernel only when the JVM runs with --add-modules jdk.incubator.vector
+        ShapeGeometryEngine vector = ShapeGeometryEngine.DEFAULT == ShapeGeometryEngine.SCALAR
+                ? null : new ShapeGeometryEngine(batch, ShapeGeometryEngine.DEFAULT);
+
+        System.out.println("Total area + perimeter of " + count + " shapes");
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            double naive = 0;
+            for (GeometricShape shape : shapes) naive += shape.area() + shape.perimeter();
+            double naiveMs = (System.nanoTime() - start) / 1e6;
+
+            // Copying objects into a batch does the same per-object calls as the naive loop
+            start = System.nanoTime();
+            ShapeGeometryEngine copied = ShapeGeometryEngine.of(shapes);
+            double ofMs = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            double scalarTotal = scalar.totalArea() + scalar.totalPerimeter();
+            double scalarMs = (System.nanoTime() - start) / 1e6;
+
+            double vectorTotal = 0, vectorMs = 0;
+            if (vector != null) {
+                start = System.nanoTime();
+                vectorTotal = vector.totalArea() + vector.totalPerimeter();
+                vectorMs = (System.nanoTime() - start) / 1e6;
+            }
+
+            if (round == ROUNDS) {
+                System.out.printf("  %-30s %8.2f ms (%.6g)%n", "List<GeometricShape> loop", naiveMs, naive);
+                System.out.printf("  %-30s %8.2f ms (%d shapes)%n", "ShapeGeometryEngine.of(list)", ofMs, copied.size());
+                System.out.printf("  %-30s %8.2f ms (%.6g)%n", "ShapeBatch, scalar kernel", scalarMs, scalarTotal);
+                if (vector != null) System.out.printf("  %-30s %8.2f ms (%.6g)%n", "ShapeBatch, vector kernel", vectorMs, vectorTotal);
+                else System.out.println("  (run with --add-modules jdk.incubator.vector for the vector kernel)");
+            }
+        }
+    }
+
+    // What a conventional geometry-carrying shape object looks like
+    private static final class BoxedShape {
+        final ShapeType kind;
+        final float x, y, width, height;
+
+        BoxedShape(ShapeType kind, float x, float y, float width, float height) {
+            this.kind = kind;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    // Heap bytes per shape: one object per shape plus the array that references it, versus ShapeBatch
+    static void measureBatchFootprint() {
+        int count = 1 << 20;
+        long bytes = allocatedBytes();
+        BoxedShape[] boxed = new BoxedShape[count];
+        for (int i = 0; i < count; i++) boxed[i] = new BoxedShape(TYPES[i & MASK], i, i, 1, 1);
+        double boxedBytes = (allocatedBytes() - bytes) / (double) count;
+
+        bytes = allocatedBytes();
+        ShapeBatch batch = new ShapeBatch(count);
+        for (int i = 0; i < count; i++) batch.add(TYPES[i & MASK], i, i, 1, 1);
+        double batchBytes = (allocatedBytes() - bytes) / (double) count;
+
+        System.out.println("Footprint of " + count + " shapes (" + boxed.length + " objects, " + batch.size() + " batch entries)");
+        System.out.printf("  %-24s %6.1f B/shape%n", "object per shape", boxedBytes);
+        System.out.printf("  %-24s %6.1f B/shape%n", "ShapeBatch arrays", batchBytes);
+    }
+
+    // Line-by-line Strings versus parsing straight from the mapped bytes
+    static void measureFileIngest() throws IOException {
+        Path file = Files.createTempFile("shapes", ".txt");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    writer.write(INPUTS[i & MASK]);
+                    writer.newLine();
+                }
+            }
+            System.out.println("Ingest of " + ITERATIONS + " lines");
+            for (int round = 1; round <= ROUNDS; round++) {
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                ShapeFactory factory = new ShapeFactory();
+                try (BufferedReader reader = Files.newBufferedReader(file)) {
+                    for (String line; (line = reader.readLine()) != null; ) blackhole = factory.createShape(line);
+                }
+                report(round, "readLine + createShape", start, bytes);
+
+                bytes = allocatedBytes();
+                start = System.nanoTime();
+                ShapeFileProcessor.countByType(file);
+                report(round, "mapped countByType", start, bytes);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void report(int round, String name, long startNanos, long startBytes) {
+        if (round < ROUNDS) return; // earlier rounds are warm-up
+        System.out.printf("  %-24s %6.2f ns/line %6.1f B/line%n", name,
+                (System.nanoTime() - startNanos) / (double) ITERATIONS,
+                (allocatedBytes() - startBytes) / (double) ITERATIONS);
+    }
+
+    // Draw throughput into an output that discards bytes, so only the sink overhead is measured
+    static void measureRenderSinks() {
+        Shape[] scene = new ShapeFactory(true).createShapes(TYPES);
+        PrintStream autoFlushing = new PrintStream(OutputStream.nullOutputStream(), true);
+        Map<String, RenderSink> sinks = new LinkedHashMap<>();
+        sinks.put("println per line", autoFlushing::println);
+        sinks.put("batched channel", new BatchedRenderSink(Channels.newChannel(OutputStream.nullOutputStream())));
+        sinks.put("discard", RenderSink.DISCARD);
+
+        System.out.println("Shape.draw(RenderSink)");
+        for (Map.Entry<String, RenderSink> entry : sinks.entrySet()) {
+            RenderSink sink = entry.getValue();
+            for (int i = 0; i < ITERATIONS; i++) scene[i & MASK].draw(sink); // warm-up
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) scene[i & MASK].draw(sink);
+            sink.flush();
+            System.out.printf("  %-24s %6.2f ns/op%n", entry.getKey(), (System.nanoTime() - start) / (double) ITERATIONS);
+        }
+    }
+
+    // Bulk creation from 1 to N workers; parallelSetAll runs in the pool of the calling task
+    static void measureBulkScaling() throws Exception {
+        ShapeType[] batch = new ShapeType[1 << 22];
+        for (int i = 0; i < batch.length; i++) batch[i] = TYPES[i & MASK];
+        ShapeFactory factory = new ShapeFactory(false, 1);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Bulk createShapes(ShapeType[]) of " + batch.length + " shapes");
+        for (int workers = 1; workers <= cores; workers *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            try {
+                for (int i = 0; i < ROUNDS; i++) pool.submit(() -> factory.createShapes(batch)).get(); // warm-up
+                long start = System.nanoTime();
+                for (int i = 0; i < ROUNDS; i++) pool.submit(() -> factory.createShapes(batch)).get();
+                System.out.printf("  %2d worker(s) %8.2f ms/batch%n", workers, (System.nanoTime() - start) / 1e6 / ROUNDS);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
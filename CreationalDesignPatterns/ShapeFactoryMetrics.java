@@ -0,0 +1,188 @@
+/**
+ * Factory Pattern example - creation metrics for ShapeFactory, exposed over JMX
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+// Optional instrumentation for ShapeFactory: created shapes per type, misses (unknown or null
+// types, where createShape returns null) and a latency histogram. Counters are LongAdders so
+// concurrent factories do not contend on one cache line. Counts are exact; latency is timed on a
+// random sample of calls, since two clock reads can cost more than creating the shape.
+class ShapeFactoryMetrics implements DynamicMBean {
+    // HDR-style log-linear buckets: 2^SUB_BITS linear steps per power of two, about 3% precision
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+    private static final ShapeType[] TYPES = ShapeType.values();
+
+    private final LongAdder[] created = new LongAdder[TYPES.length];
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+    private final int sampleMask;
+
+    public ShapeFactoryMetrics() {
+        this(16);
+    }
+
+    // Times about one call in sampleEvery (rounded up to a power of two; 1 times every call)
+    public ShapeFactoryMetrics(int sampleEvery) {
+        for (int i = 0; i < created.length; i++) created[i] = new LongAdder();
+        sampleMask = sampleEvery <= 1 ? 0 : Integer.highestOneBit(sampleEvery - 1) * 2 - 1;
+    }
+
+    void count(ShapeType type) {
+        if (type == null) misses.increment();
+        else created[type.ordinal()].increment();
+    }
+
+    boolean sampleLatency() {
+        return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+    }
+
+    void recordLatency(long nanos) {
+        latencyBuckets.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) - SUB_COUNT);
+    }
+
+    // Smallest value that falls into the bucket
+    static long bucketFloor(int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        int shift = (bucket >> SUB_BITS) - 1;
+        return (long) ((bucket & (SUB_COUNT - 1)) + SUB_COUNT) << shift;
+    }
+
+    // Lower bound of the bucket holding the given percentile (0-100) of a bucket-count histogram
+    static long percentile(long[] counts, double percentile) {
+        long total = Arrays.stream(counts).sum();
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return bucketFloor(i);
+        }
+        return 0;
+    }
+
+    // Point-in-time copy; counters keep moving while it is taken, so totals may be off by a few
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) counts[i] = latencyBuckets.get(i);
+        Map<ShapeType, Long> perType = new EnumMap<>(ShapeType.class);
+        for (ShapeType type : TYPES) perType.put(type, created[type.ordinal()].sum());
+        return new Snapshot(perType, misses.sum(), counts);
+    }
+
+    public static final class Snapshot {
+        private final Map<ShapeType, Long> created;
+        private final long misses;
+        private final long[] latencyCounts;
+        private final long total;
+
+        private Snapshot(Map<ShapeType, Long> created, long misses, long[] latencyCounts) {
+            this.created = Collections.unmodifiableMap(created);
+            this.misses = misses;
+            this.latencyCounts = latencyCounts;
+            this.total = Arrays.stream(latencyCounts).sum();
+        }
+
+        public Map<ShapeType, Long> created() { return created; }
+        public long misses() { return misses; }
+        public long latencySamples() { return total; }
+
+        // Lower bound of the bucket holding the given percentile (0-100), in nanoseconds
+        public long latencyPercentile(double percentile) {
+            return percentile(latencyCounts, percentile);
+        }
+
+        @Override
+        public String toString() {
+            return "created=" + created + ", misses=" + misses + ", p50=" + latencyPercentile(50)
+                    + "ns, p99=" + latencyPercentile(99) + "ns, max=" + latencyPercentile(100) + "ns";
+        }
+    }
+
+    // ---- JMX: read-only attributes, computed from a fresh snapshot ----
+
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("designpatterns:type=ShapeFactory,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    private Map<String, Object> attributes() {
+        Snapshot snapshot = snapshot();
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (ShapeType type : TYPES) attributes.put("Created" + type, snapshot.created().get(type));
+        attributes.put("Misses", snapshot.misses());
+        attributes.put("LatencyP50Nanos", snapshot.latencyPercentile(50));
+        attributes.put("LatencyP99Nanos", snapshot.latencyPercentile(99));
+        attributes.put("LatencyMaxNanos", snapshot.latencyPercentile(100));
+        return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = attributes().get(attribute);
+        if (value == null) throw new AttributeNotFoundException(attribute);
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String, Object> attributes = attributes();
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            if (attributes.containsKey(name)) list.add(new Attribute(name, attributes.get(name)));
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList(); // all read-only
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (String name : attributes().keySet()) {
+            infos.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "ShapeFactory creation metrics",
+                infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Factory Pattern example - streaming shape command files
+ */
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+// Streams shape command files (one type name per line) through memory-mapped windows, so files
+// larger than the heap are processed without creating a String per line
+class ShapeFileProcessor {
+    private static final long WINDOW_BYTES = 64L << 20;
+
+    // Passes each line's type to the handler in file order; null for unknown or blank lines
+    public static void process(Path file, Consumer<ShapeType> handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(WINDOW_BYTES, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    if (window.get(i) == '\n') {
+                        handler.accept(ShapeType.parse(window, lineStart, i));
+                        lineStart = i + 1;
+                    }
+                }
+                if (position + length == size) {
+                    // Last line without a trailing newline
+                    if (lineStart < length) handler.accept(ShapeType.parse(window, lineStart, length));
+                    break;
+                }
+                if (lineStart == 0) throw new IOException("Line longer than " + WINDOW_BYTES + " bytes at offset " + position);
+                // Next window starts at the first incomplete line
+                position += lineStart;
+            }
+        }
+    }
+
+    // Feeds every recognized line to the factory; unknown lines are skipped
+    public static void process(Path file, ShapeFactory factory, Consumer<Shape> consumer) throws IOException {
+        process(file, type -> {
+            if (type != null) consumer.accept(factory.createShape(type));
+        });
+    }
+
+    // Counts indexed by ShapeType ordinal, with unknown lines in the last slot
+    public static long[] countByType(Path file) throws IOException {
+        long[] counts = new long[ShapeType.values().length + 1];
+        process(file, type -> counts[type == null ? counts.length - 1 : type.ordinal()]++);
+        return counts;
+    }
+}
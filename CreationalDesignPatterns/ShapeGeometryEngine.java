@@ -0,0 +1,102 @@
+/**
+ * Factory Pattern example - bulk area, perimeter and bounds
+ */
+
+import java.util.Collection;
+
+// Aggregate geometry without a virtual call per shape: the kernels read a ShapeBatch's primitive
+// arrays in place, so a scene already held in a batch is never copied. Objects are copied into a
+// batch once, which costs about as much as one naive pass; that pays off for repeated aggregates
+class ShapeGeometryEngine {
+    // Sums over a batch's backing arrays in [0, size). Every formula works in double, as
+    // GeometricShape does, so large widths and heights never round in float
+    interface Kernel {
+        double totalArea(byte[] kinds, float[] width, float[] height, int size);
+        double totalPerimeter(byte[] kinds, float[] width, float[] height, int size);
+        // {minX, minY, maxX, maxY}, or null when size is 0
+        float[] bounds(float[] x, float[] y, float[] width, float[] height, int size);
+    }
+
+    // One pass in index order through the same formulas as the shape objects, so its totals match
+    // a loop over GeometricShape exactly
+    static final class ScalarKernel implements Kernel {
+        private static final ShapeType[] TYPES = ShapeType.values();
+
+        @Override public double totalArea(byte[] kinds, float[] width, float[] height, int size) {
+            double total = 0;
+            for (int i = 0; i < size; i++) total += GeometricShape.area(TYPES[kinds[i]], width[i], height[i]);
+            return total;
+        }
+
+        @Override public double totalPerimeter(byte[] kinds, float[] width, float[] height, int size) {
+            double total = 0;
+            for (int i = 0; i < size; i++) total += GeometricShape.perimeter(TYPES[kinds[i]], width[i], height[i]);
+            return total;
+        }
+
+        @Override public float[] bounds(float[] x, float[] y, float[] width, float[] height, int size) {
+            if (size == 0) return null;
+            float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i] + width[i]);
+                maxY = Math.max(maxY, y[i] + height[i]);
+            }
+            return new float[] {minX, minY, maxX, maxY};
+        }
+    }
+
+    static final Kernel SCALAR = new ScalarKernel();
+
+    // The Vector API kernel when the JVM runs with --add-modules jdk.incubator.vector, else scalar
+    static final Kernel DEFAULT = loadKernel();
+
+    private final ShapeBatch batch;
+    private final Kernel kernel;
+
+    ShapeGeometryEngine(ShapeBatch batch, Kernel kernel) {
+        this.batch = batch;
+        this.kernel = kernel;
+    }
+
+    // Reads the batch live: later adds and moves show up in the next aggregate
+    public static ShapeGeometryEngine of(ShapeBatch batch) {
+        return new ShapeGeometryEngine(batch, DEFAULT);
+    }
+
+    public static ShapeGeometryEngine of(Collection<? extends GeometricShape> shapes) {
+        ShapeBatch batch = new ShapeBatch(shapes.size());
+        for (GeometricShape shape : shapes) batch.add(shape.kind(), shape.x(), shape.y(), shape.width(), shape.height());
+        return new ShapeGeometryEngine(batch, DEFAULT);
+    }
+
+    // VectorGeometryKernel links against jdk.incubator.vector, which is only in the boot layer when
+    // the JVM was started with --add-modules; without it, loading the class would fail
+    private static Kernel loadKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return SCALAR;
+        try {
+            return (Kernel) Class.forName("VectorGeometryKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+
+    public int size() {
+        return batch.size();
+    }
+
+    public double totalArea() {
+        return kernel.totalArea(batch.kindArray(), batch.widthArray(), batch.heightArray(), batch.size());
+    }
+
+    public double totalPerimeter() {
+        return kernel.totalPerimeter(batch.kindArray(), batch.widthArray(), batch.heightArray(), batch.size());
+    }
+
+    // {minX, minY, maxX, maxY} over all shapes, or null when there are none
+    public float[] bounds() {
+        return kernel.bounds(batch.xArray(), batch.yArray(), batch.widthArray(), batch.heightArray(), batch.size());
+    }
+}
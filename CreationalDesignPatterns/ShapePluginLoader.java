@@ -0,0 +1,172 @@
+/**
+ * Factory Pattern example - plug-in shapes loaded from a directory of jars
+ */
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+// Loads plug-in shapes from a directory of jars. The first time a jar is seen (by content hash)
+// the ShapeProvider entries it declares are read and recorded in an index file; later starts
+// read only the index. A jar is opened and its shape class loaded only when one of its shapes is
+// first asked for. Plug-in classes live in their own loader, hence another runtime package, which
+// is why Shape, ShapeProvider and RenderSink are public. Constructors are bound through
+// ShapeRegistry.constructorSupplier, which falls back to a plain handle call across loaders.
+// ShapePluginLoaderCheck builds a plug-in jar and loads it from outside the class path.
+class ShapePluginLoader implements Closeable {
+    // Parallel-capable: threads loading different classes do not queue on one loader-wide lock
+    static final class PluginClassLoader extends URLClassLoader {
+        static {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+        PluginClassLoader(URL jar, ClassLoader parent) {
+            super(new URL[] {jar}, parent);
+        }
+    }
+
+    private static final class PluginShape {
+        final Path jar;
+        final String className;
+        volatile Supplier<Shape> supplier;
+
+        PluginShape(Path jar, String className) {
+            this.jar = jar;
+            this.className = className;
+        }
+    }
+
+    private final ClassLoader parent;
+    private final Map<String, PluginShape> shapes; // immutable, keyed by ShapeRegistry.foldName
+    private final Map<Path, PluginClassLoader> loaders = new ConcurrentHashMap<>();
+
+    public ShapePluginLoader(Path pluginDir, Path indexFile) throws IOException {
+        this(pluginDir, indexFile, ShapePluginLoader.class.getClassLoader());
+    }
+
+    public ShapePluginLoader(Path pluginDir, Path indexFile, ClassLoader parent) throws IOException {
+        this.parent = parent;
+        // Index format: one property per jar hash, "NAME:class.Name,NAME2:other.Name"
+        Properties index = new Properties();
+        if (Files.exists(indexFile)) {
+            try (Reader in = Files.newBufferedReader(indexFile)) {
+                index.load(in);
+            }
+        }
+        Properties current = new Properties();
+        Map<String, PluginShape> found = new HashMap<>();
+        try (DirectoryStream<Path> jars = Files.newDirectoryStream(pluginDir, "*.jar")) {
+            for (Path jar : jars) {
+                String hash = sha256(jar);
+                String entry = index.getProperty(hash);
+                if (entry == null) entry = scan(jar);
+                current.setProperty(hash, entry);
+                for (String pair : entry.split(",")) {
+                    if (pair.isEmpty()) continue;
+                    int colon = pair.indexOf(':');
+                    found.put(pair.substring(0, colon), new PluginShape(jar, pair.substring(colon + 1)));
+                }
+            }
+        }
+        // Rewrite only when jars were added, changed or removed
+        if (!current.equals(index)) {
+            Path temp = Files.createTempFile(indexFile.toAbsolutePath().getParent(), "shape-plugins", ".tmp");
+            try (Writer out = Files.newBufferedWriter(temp)) {
+                current.store(out, "Shape plug-in index, keyed by jar SHA-256");
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        shapes = Map.copyOf(found);
+    }
+
+    private static String sha256(Path jar) throws IOException {
+        try (InputStream in = Files.newInputStream(jar)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] chunk = new byte[64 * 1024];
+            for (int n; (n = in.read(chunk)) > 0; ) digest.update(chunk, 0, n);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JDK ships SHA-256
+        }
+    }
+
+    // Slow path for a jar not in the index: instantiate the providers it declares
+    private String scan(Path jar) throws IOException {
+        StringBuilder entry = new StringBuilder();
+        try (JarFile jarFile = new JarFile(jar.toFile());
+             URLClassLoader scanLoader = new URLClassLoader(new URL[] {jar.toUri().toURL()}, parent)) {
+            JarEntry services = jarFile.getJarEntry("META-INF/services/" + ShapeProvider.class.getName());
+            if (services == null) return "";
+            try (BufferedReader lines = new BufferedReader(new InputStreamReader(jarFile.getInputStream(services), StandardCharsets.UTF_8))) {
+                for (String line; (line = lines.readLine()) != null; ) {
+                    String providerName = line.replaceFirst("#.*", "").trim();
+                    if (providerName.isEmpty()) continue;
+                    ShapeProvider provider = (ShapeProvider) Class.forName(providerName, true, scanLoader)
+                            .getDeclaredConstructor().newInstance();
+                    if (entry.length() > 0) entry.append(',');
+                    entry.append(ShapeRegistry.foldName(provider.shapeName())).append(':').append(provider.shapeClass().getName());
+                }
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IOException("Bad ShapeProvider in " + jar, e);
+            }
+        }
+        return entry.toString();
+    }
+
+    public Set<String> shapeNames() {
+        return shapes.keySet();
+    }
+
+    public Shape createShape(String type) {
+        if (type == null) return null;
+        // Folds like ShapeRegistry, so the default locale cannot change the match
+        PluginShape shape = shapes.get(ShapeRegistry.foldName(type));
+        if (shape == null) return null;
+        Supplier<Shape> supplier = shape.supplier;
+        if (supplier == null) shape.supplier = supplier = resolve(shape);
+        return supplier.get();
+    }
+
+    private Supplier<Shape> resolve(PluginShape shape) {
+        PluginClassLoader loader = loaders.computeIfAbsent(shape.jar, jar -> {
+            try {
+                return new PluginClassLoader(jar.toUri().toURL(), parent);
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            return ShapeRegistry.constructorSupplier(Class.forName(shape.className, false, loader).asSubclass(Shape.class));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Plug-in class " + shape.className + " missing from " + shape.jar, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (PluginClassLoader loader : loaders.values()) loader.close();
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Factory Pattern example - end-to-end check of ShapePluginLoader
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+// Compiles a kite plug-in at run time, packs it into a jar in a fresh plug-in directory and loads
+// it from there, with the jar nowhere on the class path. Needs a JDK (for javax.tools):
+//   java -cp out ShapePluginLoaderCheck
+class ShapePluginLoaderCheck {
+    // The provider counts its class initializations in a system property, so the check can tell
+    // whether a start read the index or scanned the jar
+    private static final String LOADS = "shape.plugin.check.providerLoads";
+
+    private static final String SHAPE_SOURCE =
+            "public class KiteShape implements Shape {\n"
+            + "    @Override public void draw(RenderSink sink) { sink.write(\"Drawing a Kite\"); }\n"
+            + "}\n";
+    private static final String PROVIDER_SOURCE =
+            "public class KiteProvider implements ShapeProvider {\n"
+            + "    static { System.setProperty(\"" + LOADS + "\", String.valueOf(Integer.getInteger(\"" + LOADS + "\", 0) + 1)); }\n"
+            + "    @Override public String shapeName() { return \"kite\"; }\n"
+            + "    @Override public Class<? extends Shape> shapeClass() { return KiteShape.class; }\n"
+            + "}\n";
+
+    public static void main(String[] args) throws IOException {
+        // Turkish upper-cases 'i' to a dotted capital I; names must still match
+        Locale.setDefault(new Locale("tr", "TR"));
+        Path work = Files.createTempDirectory("shape-plugin-check");
+        try {
+            Path pluginDir = Files.createDirectory(work.resolve("plugins"));
+            Path index = work.resolve("plugins.index");
+            buildPluginJar(work, pluginDir.resolve("kite.jar"));
+            check(!onClassPath("KiteShape") && !onClassPath("KiteProvider"), "plug-in classes are not on the class path");
+
+            try (ShapePluginLoader plugins = new ShapePluginLoader(pluginDir, index)) {
+                check(Integer.getInteger(LOADS, 0) == 1, "first start scans the jar");
+                check(plugins.shapeNames().contains("KITE"), "first start finds KITE");
+                checkKite(plugins.createShape("Kite"));
+            }
+            try (ShapePluginLoader plugins = new ShapePluginLoader(pluginDir, index)) {
+                check(Integer.getInteger(LOADS, 0) == 1, "second start reads the index and loads no provider");
+                checkKite(plugins.createShape("KITE"));
+                check(plugins.createShape("octagon") == null, "unknown names are not plug-in shapes");
+
+                // Through the factory: built-in names keep the enum path, the rest go to the plug-ins
+                ShapeFactory factory = new ShapeFactory(false, ShapeFactory.DEFAULT_PARALLEL_THRESHOLD, null, plugins);
+                checkKite(factory.createShape("kite"));
+                check(factory.createShape("circle") instanceof CircleGood, "the factory still creates built-in shapes");
+                Shape[] shapes = factory.createShapes(new String[] {"Kite", "circle", null, "octagon"});
+                checkKite(shapes[0]);
+                check(shapes[1] instanceof CircleGood && shapes[2] == null && shapes[3] == null,
+                        "createShapes mixes built-in and plug-in names");
+            }
+            System.out.println("ShapePluginLoader check passed");
+        } finally {
+            try (Stream<Path> files = Files.walk(work)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(file);
+            }
+        }
+    }
+
+    private static void buildPluginJar(Path work, Path jar) throws IOException {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) throw new IllegalStateException("No Java compiler; run this check on a JDK");
+        Path sources = Files.createDirectory(work.resolve("src"));
+        Path classes = Files.createDirectory(work.resolve("classes"));
+        List<String> arguments = new ArrayList<>(List.of(
+                "-classpath", System.getProperty("java.class.path"), "-d", classes.toString()));
+        arguments.add(Files.writeString(sources.resolve("KiteShape.java"), SHAPE_SOURCE).toString());
+        arguments.add(Files.writeString(sources.resolve("KiteProvider.java"), PROVIDER_SOURCE).toString());
+        if (javac.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Plug-in sources did not compile");
+        }
+
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String name : List.of("KiteShape.class", "KiteProvider.class")) {
+                out.putNextEntry(new JarEntry(name));
+                Files.copy(classes.resolve(name), out);
+                out.closeEntry();
+            }
+            out.putNextEntry(new JarEntry("META-INF/services/" + ShapeProvider.class.getName()));
+            out.write("KiteProvider\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    private static boolean onClassPath(String className) {
+        try {
+            Class.forName(className, false, ShapePluginLoaderCheck.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static void checkKite(Shape shape) {
+        check(shape != null, "KITE creates a shape");
+        check(shape.getClass().getClassLoader() instanceof ShapePluginLoader.PluginClassLoader,
+                "the shape class is defined by PluginClassLoader");
+        List<String> lines = new ArrayList<>();
+        shape.draw(line -> lines.add(line.toString()));
+        check(lines.equals(List.of("Drawing a Kite")), "the plug-in shape draws");
+    }
+
+    private static void check(boolean passed, String what) {
+        if (!passed) throw new IllegalStateException("Check failed: " + what);
+        System.out.println("  ok: " + what);
+    }
+}
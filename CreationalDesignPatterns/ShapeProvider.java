@@ -0,0 +1,12 @@
+/**
+ * Factory Pattern example - the service interface for plug-in shapes
+ */
+
+// Service interface for plug-in shapes, discovered through META-INF/services/ShapeProvider.
+// Public for the same reason as Shape
+public interface ShapeProvider {
+    String shapeName();
+
+    // Only called on the first lookup of shapeName(), so the shape class loads on demand
+    Class<? extends Shape> shapeClass();
+}
@@ -0,0 +1,201 @@
+/**
+ * Factory Pattern example - shape scripts compiled into hidden classes
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// A shape script compiled once; run() creates its shapes with direct constructor calls
+interface CompiledShapeScript {
+    void run(Consumer<? super Shape> out);
+
+    long shapeCount();
+}
+
+// Compiles scripts such as "3 CIRCLE, 2 TRIANGLE, repeat 1000" (items are "[count] TYPE"; an
+// optional final "repeat N" runs the whole list N times). Each script becomes its own program: a
+// straight-line MethodHandle chain of direct constructor calls for one pass, bound once. The chain
+// is handed to a hidden class defined from the ShapeScriptTemplate bytecode as class data, where
+// it becomes a static final the JIT treats as a constant and inlines through. The hidden class
+// carries only that constant and the repeat loop; the per-script code is the handle chain.
+class ShapeScriptCompiler {
+    // Least recently used scripts are dropped past this many; their hidden classes are not
+    // strongly tied to the loader, so they can then be unloaded
+    static final int MAX_CACHED_SCRIPTS = 256;
+
+    private static final Map<String, CompiledShapeScript> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledShapeScript> eldest) {
+            return size() > MAX_CACHED_SCRIPTS;
+        }
+    };
+    private static final byte[] TEMPLATE = templateBytes();
+    private static final MethodType PROGRAM_TYPE = MethodType.methodType(void.class, Consumer.class);
+    // Counts up to this are unrolled into the chain; larger ones loop over an unrolled chunk
+    private static final int UNROLL = 16;
+    private static final MethodHandle ACCEPT;
+    private static final MethodHandle LOOP;
+    private static final MethodHandle[] CONSTRUCTORS = new MethodHandle[ShapeType.values().length];
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            ACCEPT = lookup.findVirtual(Consumer.class, "accept", MethodType.methodType(void.class, Object.class));
+            LOOP = lookup.findStatic(ShapeScriptCompiler.class, "loop",
+                    MethodType.methodType(void.class, MethodHandle.class, int.class, Consumer.class));
+            CONSTRUCTORS[ShapeType.CIRCLE.ordinal()] = lookup.findConstructor(CircleGood.class, MethodType.methodType(void.class));
+            CONSTRUCTORS[ShapeType.RECTANGLE.ordinal()] = lookup.findConstructor(RectangleGood.class, MethodType.methodType(void.class));
+            CONSTRUCTORS[ShapeType.TRIANGLE.ordinal()] = lookup.findConstructor(TriangleGood.class, MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static byte[] templateBytes() {
+        try (InputStream in = ShapeScriptTemplate.class.getResourceAsStream("ShapeScriptTemplate.class")) {
+            if (in == null) throw new IllegalStateException("ShapeScriptTemplate.class not found");
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static CompiledShapeScript compile(String script) {
+        synchronized (CACHE) {
+            CompiledShapeScript cached = CACHE.get(script);
+            if (cached != null) return cached;
+        }
+        // Compiled outside the lock; if two threads race on one script, the first stored wins
+        CompiledShapeScript compiled = define(script);
+        synchronized (CACHE) {
+            CompiledShapeScript raced = CACHE.putIfAbsent(script, compiled);
+            return raced != null ? raced : compiled;
+        }
+    }
+
+    private static CompiledShapeScript define(String script) {
+        Object[] plan = parse(script);
+        ShapeType[] types = (ShapeType[]) plan[0];
+        int[] counts = (int[]) plan[1];
+        int repeat = (Integer) plan[2];
+        long perPass = 0;
+        for (int count : counts) perPass += count;
+        try {
+            Object[] classData = {program(types, counts), repeat, perPass * repeat};
+            MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClassWithClassData(TEMPLATE, classData, true);
+            return (CompiledShapeScript) hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot define class for script: " + script, e);
+        }
+    }
+
+    // One pass of the script as a (Consumer)void handle: out.accept(new Type()) for each shape, in order
+    static MethodHandle program(ShapeType[] types, int[] counts) {
+        MethodHandle program = MethodHandles.empty(PROGRAM_TYPE);
+        for (int step = types.length - 1; step >= 0; step--) {
+            if (counts[step] == 0) continue;
+            MethodHandle create = CONSTRUCTORS[types[step].ordinal()].asType(MethodType.methodType(Object.class));
+            MethodHandle emit = MethodHandles.collectArguments(ACCEPT, 1, create);
+            // foldArguments runs the step first, then the rest of the program, on the same consumer
+            program = MethodHandles.foldArguments(program, times(counts[step], emit));
+        }
+        return program;
+    }
+
+    private static MethodHandle times(int count, MethodHandle emit) {
+        MethodHandle chunk = MethodHandles.empty(PROGRAM_TYPE);
+        for (int i = Math.min(count, UNROLL) - 1; i >= 0; i--) chunk = MethodHandles.foldArguments(chunk, emit);
+        if (count <= UNROLL) return chunk;
+        MethodHandle rest = times(count % UNROLL, emit);
+        return MethodHandles.foldArguments(rest, MethodHandles.insertArguments(LOOP, 0, chunk, count / UNROLL));
+    }
+
+    // Long runs of one type: the loop is shared code, each chunk call still runs UNROLL inlined creations
+    private static void loop(MethodHandle chunk, int times, Consumer<?> out) throws Throwable {
+        for (int i = 0; i < times; i++) chunk.invokeExact(out);
+    }
+
+    // {ShapeType[] types, int[] counts, Integer repeat}
+    static Object[] parse(String script) {
+        List<ShapeType> types = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        int repeat = 1;
+        String[] items = script.split(",");
+        for (int i = 0; i < items.length; i++) {
+            String[] words = items[i].trim().split("\\s+");
+            if (words.length == 2 && words[0].equalsIgnoreCase("repeat")) {
+                if (i != items.length - 1) throw new IllegalArgumentException("'repeat' must be the last item: " + script);
+                repeat = parseCount(words[1], script);
+                continue;
+            }
+            if (words.length > 2 || words[0].isEmpty()) throw new IllegalArgumentException("Bad item '" + items[i].trim() + "' in: " + script);
+            ShapeType type = ShapeType.parse(words[words.length - 1]);
+            if (type == null) throw new IllegalArgumentException("Unknown shape '" + words[words.length - 1] + "' in: " + script);
+            types.add(type);
+            counts.add(words.length == 2 ? parseCount(words[0], script) : 1);
+        }
+        return new Object[] {
+            types.toArray(new ShapeType[0]), counts.stream().mapToInt(Integer::intValue).toArray(), repeat
+        };
+    }
+
+    private static int parseCount(String word, String script) {
+        try {
+            int count = Integer.parseInt(word);
+            if (count >= 0) return count;
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Bad count '" + word + "' in: " + script);
+    }
+}
+
+// Bytecode template for compiled scripts - never used directly. Each hidden copy reads its
+// script's one-pass program handle from class data into a static final, so run() loops over a
+// call through a constant handle that the JIT inlines.
+final class ShapeScriptTemplate implements CompiledShapeScript {
+    private static final MethodHandle PROGRAM;
+    private static final int REPEAT;
+    private static final long SHAPE_COUNT;
+
+    static {
+        Object[] data;
+        try {
+            data = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, Object[].class);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        PROGRAM = (MethodHandle) data[0];
+        REPEAT = (Integer) data[1];
+        SHAPE_COUNT = (Long) data[2];
+    }
+
+    private ShapeScriptTemplate() {
+    }
+
+    @Override
+    public void run(Consumer<? super Shape> out) {
+        try {
+            for (int r = 0; r < REPEAT; r++) PROGRAM.invokeExact(out);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e); // the program only calls constructors and accept
+        }
+    }
+
+    @Override
+    public long shapeCount() {
+        return SHAPE_COUNT;
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Factory Pattern example - loopback shape service
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+// Line-based shape service on the loopback interface, so other local processes can create shapes
+// without linking this code. Each request line is answered with exactly one response line:
+//   circle              -> Drawing a Circle                    (rendered through Shape.draw)
+//   circle 1 2 4 4      -> CIRCLE 1.0 2.0 4.0 4.0 12.566 12.566 (kind, box, area, perimeter)
+//   anything unknown    -> ERR <reason>
+// Request lines longer than MAX_REQUEST_LINE characters are answered with ERR and otherwise dropped.
+// Every connection gets its own task on the executor. On JDK 21+ pass
+// Executors.newVirtualThreadPerTaskExecutor() to serve one virtual thread per connection; the
+// default is a cached pool of platform threads, since this code targets JDK 17.
+class ShapeService implements Closeable {
+    static final int MAX_REQUEST_LINE = 1024;
+
+    private final ShapeFactory factory;
+    private final ExecutorService connections;
+    private final ServerSocket server;
+    private final Thread acceptor;
+
+    public ShapeService(int port, ShapeFactory factory) throws IOException {
+        this(port, factory, Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shape-service-connection");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    public ShapeService(int port, ShapeFactory factory, ExecutorService connections) throws IOException {
+        this.factory = factory;
+        this.connections = connections;
+        // Large backlog so a burst of thousands of connects is not refused while the acceptor catches up
+        this.server = new ServerSocket(port, 16_384, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::acceptLoop, "shape-service-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public InetSocketAddress address() {
+        return (InetSocketAddress) server.getLocalSocketAddress();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!server.isClosed()) System.err.println("Shape service accept failed: " + e);
+            } catch (RejectedExecutionException e) {
+                return; // shutting down
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            StringBuilder rendered = new StringBuilder(), line = new StringBuilder();
+            RenderSink sink = rendered::append;
+            while (readRequest(in, line)) {
+                rendered.setLength(0);
+                out.write(line.length() > MAX_REQUEST_LINE ? "ERR request line too long"
+                        : respond(line.toString().trim(), sink, rendered));
+                out.write('\n');
+                // Pipelined requests already in the buffer are answered before flushing
+                if (!in.ready()) out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away; nothing to answer
+        }
+    }
+
+    // Reads one request line into line, without the terminator; false at end of stream. Characters
+    // past the cap are read and dropped, so a line longer than MAX_REQUEST_LINE flags an oversized one
+    private static boolean readRequest(BufferedReader in, StringBuilder line) throws IOException {
+        line.setLength(0);
+        for (int c; (c = in.read()) != -1; ) {
+            if (c == '\n') return true;
+            if (line.length() <= MAX_REQUEST_LINE) line.append((char) c);
+        }
+        return line.length() > 0;
+    }
+
+    private String respond(String request, RenderSink sink, StringBuilder rendered) {
+        String[] parts = request.split("\\s+");
+        ShapeType type = ShapeType.parse(parts[0]);
+        if (type == null) return "ERR unknown shape type: " + parts[0];
+        if (parts.length == 1) {
+            factory.createShape(type).draw(sink);
+            return rendered.toString();
+        }
+        if (parts.length != 5) return "ERR expected: <type> [x y width height]";
+        try {
+            GeometricShape shape = factory.createShape(type, Float.parseFloat(parts[1]), Float.parseFloat(parts[2]),
+                    Float.parseFloat(parts[3]), Float.parseFloat(parts[4]));
+            return type + " " + shape.x() + " " + shape.y() + " " + shape.width() + " " + shape.height()
+                    + " " + shape.area() + " " + shape.perimeter();
+        } catch (IllegalArgumentException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    // Stops accepting, then closes the executor; open connections end when their clients disconnect
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.shutdown();
+    }
+}
+
+// Drives a ShapeService from a single selector thread, so thousands of concurrent connections do
+// not need thousands of client threads. Each connection keeps one request in flight and sends the
+// next as soon as the answer arrives.
+class ShapeServiceLoadGenerator {
+    private static final byte[] REQUEST = "circle\n".getBytes(StandardCharsets.US_ASCII);
+
+    static final class Result {
+        final int connections;
+        final long requests;
+        final long elapsedNanos;
+        private final long[] latencyCounts;
+
+        Result(int connections, long requests, long elapsedNanos, long[] latencyCounts) {
+            this.connections = connections;
+            this.requests = requests;
+            this.elapsedNanos = elapsedNanos;
+            this.latencyCounts = latencyCounts;
+        }
+
+        public double requestsPerSecond() { return requests * 1e9 / elapsedNanos; }
+
+        // Lower bound of the bucket holding the percentile (0-100), in nanoseconds
+        public long latencyPercentile(double percentile) {
+            return ShapeFactoryMetrics.percentile(latencyCounts, percentile);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d connections: %,.0f req/s, p50=%.2f ms, p99=%.2f ms, max=%.2f ms", connections,
+                    requestsPerSecond(), latencyPercentile(50) / 1e6, latencyPercentile(99) / 1e6, latencyPercentile(100) / 1e6);
+        }
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer request = ByteBuffer.wrap(REQUEST);
+        final ByteBuffer response = ByteBuffer.allocate(256);
+        long sentAt;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void send() throws IOException {
+            request.rewind();
+            sentAt = System.nanoTime();
+            while (request.hasRemaining()) channel.write(request); // tiny, so loopback takes it at once
+        }
+    }
+
+    public static Result run(InetSocketAddress address, int connectionCount, long durationMillis) throws IOException {
+        List<Connection> connections = new ArrayList<>(connectionCount);
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < connectionCount; i++) {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.configureBlocking(false);
+                Connection connection = new Connection(channel);
+                channel.register(selector, SelectionKey.OP_READ, connection);
+                connections.add(connection);
+            }
+            long[] latencyCounts = new long[ShapeFactoryMetrics.BUCKETS];
+            long requests = 0;
+            long start = System.nanoTime(), deadline = start + durationMillis * 1_000_000;
+            for (Connection connection : connections) connection.send();
+            while (System.nanoTime() < deadline) {
+                selector.select(10);
+                for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); ) {
+                    Connection connection = (Connection) keys.next().attachment();
+                    keys.remove();
+                    if (connection.channel.read(connection.response) < 0) throw new EOFException("Service closed a connection");
+                    if (!endsLine(connection.response)) continue;
+                    long latency = System.nanoTime() - connection.sentAt;
+                    latencyCounts[ShapeFactoryMetrics.bucket(latency)]++;
+                    requests++;
+                    connection.response.clear();
+                    connection.send();
+                }
+            }
+            return new Result(connectionCount, requests, System.nanoTime() - start, latencyCounts);
+        } finally {
+            for (Connection connection : connections) connection.channel.close();
+        }
+    }
+
+    private static boolean endsLine(ByteBuffer response) {
+        return response.position() > 0 && response.get(response.position() - 1) == '\n';
+    }
+}
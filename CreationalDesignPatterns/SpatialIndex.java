@@ -0,0 +1,415 @@
+/**
+ * Factory Pattern example - spatial indexes for hit-testing shapes
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+// Answers "which shapes are here" without scanning every shape. Range and nearest-neighbour
+// queries work on bounding boxes; hitTest also checks the exact outline.
+interface SpatialIndex {
+    void insert(GeometricShape shape);
+
+    boolean remove(GeometricShape shape);
+
+    // Shapes whose outline contains the point
+    List<GeometricShape> hitTest(float x, float y);
+
+    // Shapes whose box intersects the query box
+    List<GeometricShape> query(float minX, float minY, float maxX, float maxY);
+
+    // Up to k shapes ordered by distance from the point to their box (0 when inside)
+    List<GeometricShape> nearest(float x, float y, int k);
+
+    static double boxDistance(GeometricShape shape, float x, float y) {
+        return boxDistance(shape.x(), shape.y(), shape.x() + shape.width(), shape.y() + shape.height(), x, y);
+    }
+
+    static double boxDistance(float minX, float minY, float maxX, float maxY, float x, float y) {
+        double dx = Math.max(0, Math.max(minX - x, x - maxX));
+        double dy = Math.max(0, Math.max(minY - y, y - maxY));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
+
+// Uniform grid: each shape is listed in every cell its box touches. Best when shapes are of similar
+// size and spread evenly; the cell size should be about the size of a typical shape.
+class UniformGridIndex implements SpatialIndex {
+    private final float cellSize;
+    private final Map<Long, List<GeometricShape>> cells = new HashMap<>();
+    // Occupied cell range, so nearest() knows when to stop widening its search
+    private int minCellX = Integer.MAX_VALUE, minCellY = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE, maxCellY = Integer.MIN_VALUE;
+
+    public UniformGridIndex(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void insert(GeometricShape shape) {
+        int x0 = cell(shape.x()), y0 = cell(shape.y());
+        int x1 = cell(shape.x() + shape.width()), y1 = cell(shape.y() + shape.height());
+        for (int cx = x0; cx <= x1; cx++) {
+            for (int cy = y0; cy <= y1; cy++) cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(shape);
+        }
+        minCellX = Math.min(minCellX, x0);
+        minCellY = Math.min(minCellY, y0);
+        maxCellX = Math.max(maxCellX, x1);
+        maxCellY = Math.max(maxCellY, y1);
+    }
+
+    @Override
+    public boolean remove(GeometricShape shape) {
+        boolean removed = false;
+        int x0 = cell(shape.x()), y0 = cell(shape.y());
+        int x1 = cell(shape.x() + shape.width()), y1 = cell(shape.y() + shape.height());
+        for (int cx = x0; cx <= x1; cx++) {
+            for (int cy = y0; cy <= y1; cy++) {
+                List<GeometricShape> cell = cells.get(key(cx, cy));
+                if (cell != null && cell.remove(shape)) {
+                    removed = true;
+                    if (cell.isEmpty()) cells.remove(key(cx, cy));
+                }
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<GeometricShape> hitTest(float x, float y) {
+        List<GeometricShape> hits = new ArrayList<>();
+        List<GeometricShape> cell = cells.get(key(cell(x), cell(y)));
+        if (cell != null) {
+            for (GeometricShape shape : cell) if (shape.contains(x, y)) hits.add(shape);
+        }
+        return hits;
+    }
+
+    @Override
+    public List<GeometricShape> query(float minX, float minY, float maxX, float maxY) {
+        List<GeometricShape> result = new ArrayList<>();
+        int x0 = cell(minX), y0 = cell(minY), x1 = cell(maxX), y1 = cell(maxY);
+        for (int cx = x0; cx <= x1; cx++) {
+            for (int cy = y0; cy <= y1; cy++) {
+                List<GeometricShape> cell = cells.get(key(cx, cy));
+                if (cell == null) continue;
+                for (GeometricShape shape : cell) {
+                    if (shape.x() > maxX || shape.y() > maxY
+                            || shape.x() + shape.width() < minX || shape.y() + shape.height() < minY) continue;
+                    // A shape spanning several cells is reported only from the first cell of its overlap
+                    if (cell(Math.max(shape.x(), minX)) == cx && cell(Math.max(shape.y(), minY)) == cy) result.add(shape);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<GeometricShape> nearest(float x, float y, int k) {
+        if (cells.isEmpty() || k <= 0) return new ArrayList<>();
+        // Max-heap of the best k so far, searched ring by ring outwards from the query cell
+        PriorityQueue<GeometricShape> best = new PriorityQueue<>(
+                Comparator.comparingDouble((GeometricShape s) -> SpatialIndex.boxDistance(s, x, y)).reversed());
+        Set<GeometricShape> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int qx = cell(x), qy = cell(y);
+        int maxRing = Math.max(Math.max(Math.abs(qx - minCellX), Math.abs(qx - maxCellX)),
+                Math.max(Math.abs(qy - minCellY), Math.abs(qy - maxCellY)));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Everything beyond this ring is at least this far away
+            if (best.size() == k && SpatialIndex.boxDistance(best.peek(), x, y) <= (ring - 1) * cellSize) break;
+            // Only the ring's perimeter, clipped to the occupied range: rows top and bottom, then
+            // the columns between them
+            int x0 = Math.max(qx - ring, minCellX), x1 = Math.min(qx + ring, maxCellX);
+            int y0 = Math.max(qy - ring + 1, minCellY), y1 = Math.min(qy + ring - 1, maxCellY);
+            boolean bottom = qy - ring >= minCellY, top = ring > 0 && qy + ring <= maxCellY;
+            boolean left = qx - ring >= minCellX, right = ring > 0 && qx + ring <= maxCellX;
+            long ringCells = (long) Math.max(0, x1 - x0 + 1) * ((bottom ? 1 : 0) + (top ? 1 : 0))
+                    + (long) Math.max(0, y1 - y0 + 1) * ((left ? 1 : 0) + (right ? 1 : 0));
+            // In a sparse grid the rings run mostly through empty cells; once a ring has more cells
+            // than are occupied, visiting every occupied cell from here outwards is cheaper
+            if (ringCells > cells.size()) {
+                for (long key : cells.keySet()) {
+                    int cx = (int) (key >> 32), cy = (int) key;
+                    if (Math.max(Math.abs(cx - qx), Math.abs(cy - qy)) >= ring) visitCell(cx, cy, k, best, seen);
+                }
+                break;
+            }
+            for (int cx = x0; cx <= x1; cx++) {
+                if (bottom) visitCell(cx, qy - ring, k, best, seen);
+                if (top) visitCell(cx, qy + ring, k, best, seen);
+            }
+            for (int cy = y0; cy <= y1; cy++) {
+                if (left) visitCell(qx - ring, cy, k, best, seen);
+                if (right) visitCell(qx + ring, cy, k, best, seen);
+            }
+        }
+        List<GeometricShape> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(s -> SpatialIndex.boxDistance(s, x, y)));
+        return result;
+    }
+
+    private void visitCell(int cx, int cy, int k, PriorityQueue<GeometricShape> best, Set<GeometricShape> seen) {
+        List<GeometricShape> cell = cells.get(key(cx, cy));
+        if (cell == null) return;
+        for (GeometricShape shape : cell) {
+            if (!seen.add(shape)) continue;
+            best.add(shape);
+            if (best.size() > k) best.poll();
+        }
+    }
+}
+
+// R-tree bulk-loaded with Sort-Tile-Recursive packing, which gives nearly full, barely overlapping
+// nodes. Later inserts descend by least enlargement and split full nodes along their longer side.
+class StrRTree implements SpatialIndex {
+    private static final int NODE_CAPACITY = 16;
+
+    private static final class Node {
+        final boolean leaf;
+        final List<Node> children = new ArrayList<>();
+        final List<GeometricShape> shapes = new ArrayList<>();
+        Node parent;
+        float minX, minY, maxX, maxY;
+
+        Node(boolean leaf) { this.leaf = leaf; }
+
+        int size() { return leaf ? shapes.size() : children.size(); }
+
+        void recomputeBounds() {
+            minX = minY = Float.POSITIVE_INFINITY;
+            maxX = maxY = Float.NEGATIVE_INFINITY;
+            if (leaf) {
+                for (GeometricShape s : shapes) extend(s.x(), s.y(), s.x() + s.width(), s.y() + s.height());
+            } else {
+                for (Node c : children) extend(c.minX, c.minY, c.maxX, c.maxY);
+            }
+        }
+
+        void extend(float x0, float y0, float x1, float y1) {
+            minX = Math.min(minX, x0);
+            minY = Math.min(minY, y0);
+            maxX = Math.max(maxX, x1);
+            maxY = Math.max(maxY, y1);
+        }
+
+        boolean intersects(float x0, float y0, float x1, float y1) {
+            return x0 <= maxX && x1 >= minX && y0 <= maxY && y1 >= minY;
+        }
+
+        void add(Node child) {
+            child.parent = this;
+            children.add(child);
+        }
+    }
+
+    private Node root;
+
+    public StrRTree() {
+    }
+
+    public StrRTree(Collection<? extends GeometricShape> shapes) {
+        if (shapes.isEmpty()) return;
+        List<Node> level = new ArrayList<>();
+        for (List<GeometricShape> tile : strTiles(new ArrayList<GeometricShape>(shapes),
+                s -> s.x() + s.width() / 2, s -> s.y() + s.height() / 2)) {
+            Node leaf = new Node(true);
+            leaf.shapes.addAll(tile);
+            leaf.recomputeBounds();
+            level.add(leaf);
+        }
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<>();
+            for (List<Node> tile : strTiles(level, n -> (n.minX + n.maxX) / 2, n -> (n.minY + n.maxY) / 2)) {
+                Node parent = new Node(false);
+                for (Node child : tile) parent.add(child);
+                parent.recomputeBounds();
+                parents.add(parent);
+            }
+            level = parents;
+        }
+        root = level.get(0);
+    }
+
+    // Sort by x into vertical slabs, sort each slab by y, then cut it into full nodes
+    private static <T> List<List<T>> strTiles(List<T> items, ToDoubleFunction<T> centerX, ToDoubleFunction<T> centerY) {
+        int nodeCount = (items.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slabSize = (int) Math.ceil(Math.sqrt(nodeCount)) * NODE_CAPACITY;
+        items.sort(Comparator.comparingDouble(centerX));
+        List<List<T>> tiles = new ArrayList<>(nodeCount);
+        for (int slab = 0; slab < items.size(); slab += slabSize) {
+            List<T> slabItems = items.subList(slab, Math.min(slab + slabSize, items.size()));
+            slabItems.sort(Comparator.comparingDouble(centerY));
+            for (int i = 0; i < slabItems.size(); i += NODE_CAPACITY) {
+                tiles.add(slabItems.subList(i, Math.min(i + NODE_CAPACITY, slabItems.size())));
+            }
+        }
+        return tiles;
+    }
+
+    @Override
+    public void insert(GeometricShape shape) {
+        float x0 = shape.x(), y0 = shape.y(), x1 = x0 + shape.width(), y1 = y0 + shape.height();
+        if (root == null) root = new Node(true);
+        Node node = root;
+        while (!node.leaf) {
+            Node best = null;
+            double bestGrowth = Double.POSITIVE_INFINITY;
+            for (Node child : node.children) {
+                double area = (double) (child.maxX - child.minX) * (child.maxY - child.minY);
+                double grown = (double) (Math.max(child.maxX, x1) - Math.min(child.minX, x0))
+                        * (Math.max(child.maxY, y1) - Math.min(child.minY, y0));
+                if (grown - area < bestGrowth) {
+                    bestGrowth = grown - area;
+                    best = child;
+                }
+            }
+            node = best;
+        }
+        node.shapes.add(shape);
+        for (Node n = node; n != null; n = n.parent) n.extend(x0, y0, x1, y1);
+        if (node.size() > NODE_CAPACITY) split(node);
+    }
+
+    private void split(Node node) {
+        Node sibling = new Node(node.leaf);
+        boolean alongX = node.maxX - node.minX >= node.maxY - node.minY;
+        if (node.leaf) {
+            node.shapes.sort(Comparator.comparingDouble(s -> alongX ? s.x() + s.width() / 2 : s.y() + s.height() / 2));
+            List<GeometricShape> upper = node.shapes.subList(node.shapes.size() / 2, node.shapes.size());
+            sibling.shapes.addAll(upper);
+            upper.clear();
+        } else {
+            node.children.sort(Comparator.comparingDouble(n -> alongX ? n.minX + n.maxX : n.minY + n.maxY));
+            List<Node> upper = node.children.subList(node.children.size() / 2, node.children.size());
+            for (Node child : upper) sibling.add(child);
+            upper.clear();
+        }
+        node.recomputeBounds();
+        sibling.recomputeBounds();
+
+        if (node.parent == null) {
+            root = new Node(false);
+            root.add(node);
+            root.add(sibling);
+            root.recomputeBounds();
+        } else {
+            node.parent.add(sibling);
+            if (node.parent.size() > NODE_CAPACITY) split(node.parent);
+        }
+    }
+
+    @Override
+    public boolean remove(GeometricShape shape) {
+        Node leaf = root == null ? null : findLeaf(root, shape);
+        if (leaf == null) return false;
+        leaf.shapes.remove(shape);
+        // Drop emptied nodes, then shrink the bounds on the way up
+        Node node = leaf;
+        while (node.parent != null && node.size() == 0) {
+            node.parent.children.remove(node);
+            node = node.parent;
+        }
+        for (Node n = node; n != null; n = n.parent) n.recomputeBounds();
+        while (!root.leaf && root.size() == 1) {
+            root = root.children.get(0);
+            root.parent = null;
+        }
+        if (root.size() == 0) root = null;
+        return true;
+    }
+
+    private static Node findLeaf(Node node, GeometricShape shape) {
+        float x0 = shape.x(), y0 = shape.y(), x1 = x0 + shape.width(), y1 = y0 + shape.height();
+        if (x0 < node.minX || y0 < node.minY || x1 > node.maxX || y1 > node.maxY) return null;
+        if (node.leaf) return node.shapes.contains(shape) ? node : null;
+        for (Node child : node.children) {
+            Node found = findLeaf(child, shape);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    @Override
+    public List<GeometricShape> hitTest(float x, float y) {
+        List<GeometricShape> hits = new ArrayList<>();
+        if (root != null) hitTest(root, x, y, hits);
+        return hits;
+    }
+
+    private static void hitTest(Node node, float x, float y, List<GeometricShape> hits) {
+        if (!node.intersects(x, y, x, y)) return;
+        if (node.leaf) {
+            for (GeometricShape shape : node.shapes) if (shape.contains(x, y)) hits.add(shape);
+        } else {
+            for (Node child : node.children) hitTest(child, x, y, hits);
+        }
+    }
+
+    @Override
+    public List<GeometricShape> query(float minX, float minY, float maxX, float maxY) {
+        List<GeometricShape> result = new ArrayList<>();
+        if (root != null) query(root, minX, minY, maxX, maxY, result);
+        return result;
+    }
+
+    private static void query(Node node, float minX, float minY, float maxX, float maxY, List<GeometricShape> result) {
+        if (!node.intersects(minX, minY, maxX, maxY)) return;
+        if (node.leaf) {
+            for (GeometricShape s : node.shapes) {
+                if (s.x() <= maxX && s.y() <= maxY && s.x() + s.width() >= minX && s.y() + s.height() >= minY) result.add(s);
+            }
+        } else {
+            for (Node child : node.children) query(child, minX, minY, maxX, maxY, result);
+        }
+    }
+
+    @Override
+    public List<GeometricShape> nearest(float x, float y, int k) {
+        // Best-first search: nodes and shapes share one queue ordered by their distance to the point
+        final class Candidate {
+            final double distance;
+            final Node node;
+            final GeometricShape shape;
+
+            Candidate(double distance, Node node, GeometricShape shape) {
+                this.distance = distance;
+                this.node = node;
+                this.shape = shape;
+            }
+        }
+        List<GeometricShape> result = new ArrayList<>(k);
+        if (root == null || k <= 0) return result;
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(Comparator.comparingDouble((Candidate c) -> c.distance));
+        queue.add(new Candidate(SpatialIndex.boxDistance(root.minX, root.minY, root.maxX, root.maxY, x, y), root, null));
+        while (!queue.isEmpty() && result.size() < k) {
+            Candidate next = queue.poll();
+            if (next.shape != null) {
+                result.add(next.shape);
+            } else if (next.node.leaf) {
+                for (GeometricShape s : next.node.shapes) queue.add(new Candidate(SpatialIndex.boxDistance(s, x, y), null, s));
+            } else {
+                for (Node c : next.node.children) {
+                    queue.add(new Candidate(SpatialIndex.boxDistance(c.minX, c.minY, c.maxX, c.maxY, x, y), c, null));
+                }
+            }
+        }
+        return result;
+    }
+}
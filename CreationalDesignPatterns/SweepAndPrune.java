@@ -0,0 +1,105 @@
+/**
+ * Factory Pattern example - broad-phase collision detection
+ */
+
+import java.util.Arrays;
+
+// Broad-phase collision detection by sort-and-sweep on the x intervals of shape boxes. The sort
+// order is kept between ticks and repaired with insertion sort, which is close to linear when
+// shapes move a little per tick. All arrays are reused, so steady-state ticks allocate nothing.
+class SweepAndPrune {
+    private int[] order = new int[0];   // shape indices sorted by min x
+    private float[] minX = new float[0]; // per shape index, refreshed each tick
+    private long[] sortKeys = new long[0];
+    private float[] sortedMinX = new float[0], sortedMaxX = new float[0];
+    private float[] sortedMinY = new float[0], sortedMaxY = new float[0];
+    private int[] pairs = new int[256];  // overlapping pairs as consecutive (a, b) indices
+    private int pairCount;
+
+    // Finds every pair of shapes whose boxes overlap; returns the number of pairs
+    public int update(ShapeBatch batch) {
+        int n = batch.size();
+        if (order.length != n) {
+            order = new int[n];
+            minX = new float[n];
+            sortKeys = new long[n];
+            sortedMinX = new float[n];
+            sortedMaxX = new float[n];
+            sortedMinY = new float[n];
+            sortedMaxY = new float[n];
+            for (int i = 0; i < n; i++) minX[i] = batch.x(i);
+            fullSort(n);
+        } else {
+            for (int i = 0; i < n; i++) minX[i] = batch.x(i);
+            insertionSort(n);
+        }
+        sweep(batch, n);
+        return pairCount;
+    }
+
+    // First tick, or the shape count changed: sort (min x, index) pairs packed into longs
+    private void fullSort(int n) {
+        for (int i = 0; i < n; i++) sortKeys[i] = ((long) sortable(minX[i]) << 32) | i;
+        Arrays.sort(sortKeys, 0, n);
+        for (int i = 0; i < n; i++) order[i] = (int) sortKeys[i];
+    }
+
+    // Float bits flipped so that signed int order matches float order
+    private static int sortable(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits >= 0 ? bits : bits ^ 0x7FFFFFFF;
+    }
+
+    // Insertion sort is quadratic when the order is far off (teleports, a new scene), so once its
+    // shifts reach what fullSort would cost, about n log n, it gives up and re-sorts from scratch.
+    // A few shapes wrapping across the world each tick stay well under that
+    private void insertionSort(int n) {
+        long budget = (long) n * (32 - Integer.numberOfLeadingZeros(n));
+        for (int i = 1; i < n; i++) {
+            int shape = order[i];
+            float key = minX[shape];
+            int j = i - 1;
+            while (j >= 0 && minX[order[j]] > key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = shape;
+            budget -= i - 1 - j;
+            if (budget < 0) {
+                fullSort(n);
+                return;
+            }
+        }
+    }
+
+    private void sweep(ShapeBatch batch, int n) {
+        // Gather the boxes in sorted order once so the inner loop reads memory sequentially
+        for (int i = 0; i < n; i++) {
+            int shape = order[i];
+            sortedMinX[i] = minX[shape];
+            sortedMaxX[i] = minX[shape] + batch.width(shape);
+            sortedMinY[i] = batch.y(shape);
+            sortedMaxY[i] = sortedMinY[i] + batch.height(shape);
+        }
+        pairCount = 0;
+        for (int i = 0; i < n; i++) {
+            float maxX = sortedMaxX[i], minY = sortedMinY[i], maxY = sortedMaxY[i];
+            // Only shapes starting before this one ends can overlap it on x
+            for (int j = i + 1; j < n && sortedMinX[j] <= maxX; j++) {
+                // Non-short-circuit & avoids a second, poorly predicted branch
+                if (sortedMinY[j] <= maxY & sortedMaxY[j] >= minY) addPair(order[i], order[j]);
+            }
+        }
+    }
+
+    private void addPair(int a, int b) {
+        if (2 * pairCount + 2 > pairs.length) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        pairs[2 * pairCount] = a;
+        pairs[2 * pairCount + 1] = b;
+        pairCount++;
+    }
+
+    public int pairCount() { return pairCount; }
+    public int pairA(int pair) { return pairs[2 * pair]; }
+    public int pairB(int pair) { return pairs[2 * pair + 1]; }
+}
@@ -0,0 +1,133 @@
+/**
+ * Factory Pattern example - parallel tiled rasterizer for geometric shapes
+ */
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.imageio.ImageIO;
+
+// In-memory ARGB image; row 0 is the top, while shape coordinates grow upwards from the bottom
+class Framebuffer {
+    final int width, height;
+    final int[] pixels;
+
+    public Framebuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+
+    public void clear(int argb) {
+        Arrays.fill(pixels, argb);
+    }
+
+    // Plain-text-header binary PPM (P6): no dependencies, opens in most image viewers
+    public void writePpm(Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            out.write(("P6\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+            for (int argb : pixels) {
+                out.write(argb >>> 16);
+                out.write(argb >>> 8);
+                out.write(argb);
+            }
+        }
+    }
+
+    public void writePng(Path file) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        ImageIO.write(image, "png", file.toFile());
+    }
+}
+
+// Fills geometric shapes into a Framebuffer. The image is cut into square tiles, shapes are binned
+// into the tiles their box touches, and tiles are filled in parallel on the common ForkJoinPool.
+// Each tile is written by exactly one task, so the pixel array needs no locks. Later shapes in
+// the scene are painted over earlier ones.
+class TiledRasterizer {
+    static final int[] COLORS = {0xFFE53935, 0xFF43A047, 0xFF1E88E5}; // by ShapeType ordinal
+
+    private final int tileSize;
+    // Per-tile lists of scene indices, kept between frames to avoid reallocating
+    private int[][] bins = new int[0][];
+    private int[] binSizes = new int[0];
+
+    public TiledRasterizer() {
+        this(64);
+    }
+
+    public TiledRasterizer(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    public void render(List<? extends GeometricShape> scene, Framebuffer target) {
+        int tilesX = (target.width + tileSize - 1) / tileSize;
+        int tilesY = (target.height + tileSize - 1) / tileSize;
+        bin(scene, target, tilesX, tilesY);
+        IntStream.range(0, tilesX * tilesY).parallel()
+                .forEach(tile -> rasterizeTile(scene, target, tile, tilesX));
+    }
+
+    private void bin(List<? extends GeometricShape> scene, Framebuffer target, int tilesX, int tilesY) {
+        if (bins.length != tilesX * tilesY) {
+            bins = new int[tilesX * tilesY][16];
+            binSizes = new int[tilesX * tilesY];
+        }
+        Arrays.fill(binSizes, 0);
+        for (int i = 0; i < scene.size(); i++) {
+            GeometricShape s = scene.get(i);
+            // Shape box in pixel rows and columns, clamped to the image
+            int col0 = Math.max(0, (int) Math.floor(s.x())), col1 = Math.min(target.width - 1, (int) Math.ceil(s.x() + s.width()));
+            int row0 = Math.max(0, target.height - (int) Math.ceil(s.y() + s.height()));
+            int row1 = Math.min(target.height - 1, target.height - (int) Math.floor(s.y()));
+            if (col0 > col1 || row0 > row1) continue;
+            for (int ty = row0 / tileSize; ty <= row1 / tileSize; ty++) {
+                for (int tx = col0 / tileSize; tx <= col1 / tileSize; tx++) {
+                    int tile = ty * tilesX + tx;
+                    if (binSizes[tile] == bins[tile].length) bins[tile] = Arrays.copyOf(bins[tile], binSizes[tile] * 2);
+                    bins[tile][binSizes[tile]++] = i;
+                }
+            }
+        }
+    }
+
+    private void rasterizeTile(List<? extends GeometricShape> scene, Framebuffer target, int tile, int tilesX) {
+        int colMin = (tile % tilesX) * tileSize, colMax = Math.min(target.width, colMin + tileSize);
+        int rowMin = (tile / tilesX) * tileSize, rowMax = Math.min(target.height, rowMin + tileSize);
+        int[] bin = bins[tile];
+        int binSize = binSizes[tile];
+        int[] pixels = target.pixels;
+
+        for (int b = 0; b < binSize; b++) {
+            GeometricShape s = scene.get(bin[b]);
+            int color = COLORS[s.kind().ordinal()];
+            float halfWidth = s.width() / 2, centerX = s.x() + halfWidth;
+            for (int row = rowMin; row < rowMax; row++) {
+                // Sample at the pixel centre, in shape coordinates
+                float dy = target.height - (row + 0.5f) - s.y();
+                if (dy < 0 || dy > s.height()) continue;
+                float spanHalf;
+                switch (s.kind()) {
+                    case CIRCLE: {
+                        float fromCenter = dy - halfWidth;
+                        spanHalf = (float) Math.sqrt(Math.max(0, halfWidth * halfWidth - fromCenter * fromCenter));
+                        break;
+                    }
+                    case RECTANGLE: spanHalf = halfWidth; break;
+                    default: spanHalf = halfWidth * (1 - dy / s.height());
+                }
+                int from = Math.max(colMin, (int) Math.ceil(centerX - spanHalf - 0.5f));
+                int to = Math.min(colMax - 1, (int) Math.floor(centerX + spanHalf - 0.5f));
+                if (from <= to) Arrays.fill(pixels, row * target.width + from, row * target.width + to + 1, color);
+            }
+        }
+    }
+}
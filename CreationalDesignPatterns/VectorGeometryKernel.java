@@ -0,0 +1,100 @@
+/**
+ * Factory Pattern example - Vector API kernel for ShapeGeometryEngine
+ */
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// ShapeGeometryEngine's kernel on the incubating Vector API. It needs --add-modules
+// jdk.incubator.vector to compile, and ShapeGeometryEngine only loads it when the JVM runs with
+// that flag too. Every lane computes all three kinds' formulas and a mask per kind picks one, so
+// mixed batches need no branches. Sums are reduced across lanes at the end, so totals can differ
+// from the scalar kernel in the last bits
+final class VectorGeometryKernel implements ShapeGeometryEngine.Kernel {
+    // At most 8 double lanes, so one 8-byte load of kinds covers whole double vectors
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED.length() <= 8
+            ? DoubleVector.SPECIES_PREFERRED : DoubleVector.SPECIES_512;
+    // Widths and heights are loaded as floats with one lane per double lane, then widened
+    private static final VectorSpecies<Float> F = VectorSpecies.of(float.class, VectorShape.forBitSize(D.length() * Float.SIZE));
+    private static final VectorSpecies<Byte> KINDS = ByteVector.SPECIES_64;
+    // Bounds stay in float, so they take the widest float species
+    private static final VectorSpecies<Float> BOUNDS = FloatVector.SPECIES_PREFERRED;
+
+    private static final ShapeType[] TYPES = ShapeType.values();
+    private static final double CIRCLE = ShapeType.CIRCLE.ordinal();
+    private static final double RECTANGLE = ShapeType.RECTANGLE.ordinal();
+
+    @Override public double totalArea(byte[] kinds, float[] width, float[] height, int size) {
+        DoubleVector sum = DoubleVector.zero(D);
+        int i = 0;
+        for (int bound = KINDS.loopBound(size); i < bound; i += KINDS.length()) {
+            ByteVector kindBytes = ByteVector.fromArray(KINDS, kinds, i);
+            for (int part = 0; part * D.length() < KINDS.length(); part++) {
+                int lane = i + part * D.length();
+                DoubleVector kind = (DoubleVector) kindBytes.convertShape(VectorOperators.B2D, D, part);
+                DoubleVector w = widen(width, lane), h = widen(height, lane);
+                // Each kind's area is a constant multiple of width * height
+                DoubleVector factor = DoubleVector.broadcast(D, 0.5)
+                        .blend(1.0, kind.eq(RECTANGLE))
+                        .blend(Math.PI / 4, kind.eq(CIRCLE));
+                sum = sum.add(factor.mul(w).mul(h));
+            }
+        }
+        double total = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < size; i++) total += GeometricShape.area(TYPES[kinds[i]], width[i], height[i]);
+        return total;
+    }
+
+    @Override public double totalPerimeter(byte[] kinds, float[] width, float[] height, int size) {
+        DoubleVector sum = DoubleVector.zero(D);
+        int i = 0;
+        for (int bound = KINDS.loopBound(size); i < bound; i += KINDS.length()) {
+            ByteVector kindBytes = ByteVector.fromArray(KINDS, kinds, i);
+            for (int part = 0; part * D.length() < KINDS.length(); part++) {
+                int lane = i + part * D.length();
+                DoubleVector kind = (DoubleVector) kindBytes.convertShape(VectorOperators.B2D, D, part);
+                DoubleVector w = widen(width, lane), h = widen(height, lane);
+                DoubleVector triangle = w.add(w.mul(w).add(h.mul(4).mul(h)).sqrt());
+                VectorMask<Double> isRectangle = kind.eq(RECTANGLE), isCircle = kind.eq(CIRCLE);
+                sum = sum.add(triangle.blend(w.add(h).mul(2), isRectangle).blend(w.mul(Math.PI), isCircle));
+            }
+        }
+        double total = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < size; i++) total += GeometricShape.perimeter(TYPES[kinds[i]], width[i], height[i]);
+        return total;
+    }
+
+    private static DoubleVector widen(float[] values, int from) {
+        return (DoubleVector) FloatVector.fromArray(F, values, from).convertShape(VectorOperators.F2D, D, 0);
+    }
+
+    @Override public float[] bounds(float[] x, float[] y, float[] width, float[] height, int size) {
+        if (size == 0) return null;
+        FloatVector minX = FloatVector.broadcast(BOUNDS, Float.POSITIVE_INFINITY), minY = minX;
+        FloatVector maxX = FloatVector.broadcast(BOUNDS, Float.NEGATIVE_INFINITY), maxY = maxX;
+        int i = 0;
+        for (int bound = BOUNDS.loopBound(size); i < bound; i += BOUNDS.length()) {
+            FloatVector vx = FloatVector.fromArray(BOUNDS, x, i), vy = FloatVector.fromArray(BOUNDS, y, i);
+            minX = minX.min(vx);
+            minY = minY.min(vy);
+            maxX = maxX.max(vx.add(FloatVector.fromArray(BOUNDS, width, i)));
+            maxY = maxY.max(vy.add(FloatVector.fromArray(BOUNDS, height, i)));
+        }
+        float[] box = {
+            minX.reduceLanes(VectorOperators.MIN), minY.reduceLanes(VectorOperators.MIN),
+            maxX.reduceLanes(VectorOperators.MAX), maxY.reduceLanes(VectorOperators.MAX)
+        };
+        for (; i < size; i++) {
+            box[0] = Math.min(box[0], x[i]);
+            box[1] = Math.min(box[1], y[i]);
+            box[2] = Math.max(box[2], x[i] + width[i]);
+            box[3] = Math.max(box[3], y[i] + height[i]);
+        }
+        return box;
+    }
+}